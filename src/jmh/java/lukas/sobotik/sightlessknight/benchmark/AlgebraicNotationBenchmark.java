@@ -0,0 +1,63 @@
+package lukas.sobotik.sightlessknight.benchmark;
+
+import lukas.sobotik.sightlessknight.gamelogic.AlgebraicNotationUtils;
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of creating and parsing the standard algebraic notation (SAN) of every legal move of a position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgebraicNotationBenchmark {
+
+    /**
+     * The notation of a move is created after the move is played, like when a move is added to the move history.
+     * The game state isn't passed to the notation, so the check state isn't cached between the iterations.
+     */
+    @Benchmark
+    public void getParsedMove(BenchmarkPosition position, NotationState notationState, Blackhole blackhole) {
+        Board board = position.board;
+        for (Move move : position.legalMoves) {
+            board.movePiece(move);
+            blackhole.consume(notationState.uncachedNotationUtils.getParsedMove(move));
+            board.undoMove(move);
+        }
+    }
+
+    @Benchmark
+    public void getMoveFromParsedMove(BenchmarkPosition position, NotationState notationState, Blackhole blackhole) {
+        for (String parsedMove : position.parsedMoves) {
+            blackhole.consume(notationState.notationUtils.getMoveFromParsedMove(parsedMove));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NotationState {
+        AlgebraicNotationUtils notationUtils;
+        AlgebraicNotationUtils uncachedNotationUtils;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkPosition position) {
+            notationUtils = new AlgebraicNotationUtils(position.fenUtils, position.gameState, position.board);
+            uncachedNotationUtils = new AlgebraicNotationUtils(position.fenUtils, null, position.board);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package lukas.sobotik.sightlessknight.benchmark;
+
+import lukas.sobotik.sightlessknight.gamelogic.AlgebraicNotationUtils;
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
+import lukas.sobotik.sightlessknight.gamelogic.GameState;
+import lukas.sobotik.sightlessknight.gamelogic.Move;
+import lukas.sobotik.sightlessknight.gamelogic.Piece;
+import lukas.sobotik.sightlessknight.gamelogic.Rules;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed corpus of positions the benchmarks run on, the same positions as in the perft tests.
+ * Every benchmark is run once for every position, so a change that only helps or hurts some kinds of positions
+ * (e.g. many promotions or castling moves) can be told apart.
+ */
+@State(Scope.Thread)
+public class BenchmarkPosition {
+    @Param({
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    })
+    public String fen;
+
+    public FenUtils fenUtils;
+    public Board board;
+    public GameState gameState;
+    public Team turn;
+    public List<Move> legalMoves;
+    public List<String> parsedMoves;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Piece[] pieces = new Piece[64];
+        fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        board = new Board(8, pieces, fenUtils);
+        turn = fenUtils.getStartingTeam() == Team.BLACK ? Team.BLACK : Team.WHITE;
+        gameState = new GameState(board, turn, false);
+        legalMoves = Rules.getAllValidMovesForTeam(turn, board, true);
+
+        // The notation of a move is created after it has been played
+        AlgebraicNotationUtils algebraicNotationUtils = new AlgebraicNotationUtils(fenUtils, null, board);
+        parsedMoves = new ArrayList<>();
+        for (Move move : legalMoves) {
+            board.movePiece(move);
+            parsedMoves.add(algebraicNotationUtils.getParsedMove(move));
+            board.undoMove(move);
+        }
+    }
+}
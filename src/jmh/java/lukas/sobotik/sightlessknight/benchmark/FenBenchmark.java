@@ -0,0 +1,33 @@
+package lukas.sobotik.sightlessknight.benchmark;
+
+import lukas.sobotik.sightlessknight.gamelogic.Piece;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing and generating FEN strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenBenchmark {
+
+    @Benchmark
+    public Piece[] generatePositionFromFEN(BenchmarkPosition position) {
+        return position.fenUtils.generatePositionFromFEN(position.fen);
+    }
+
+    @Benchmark
+    public String generateFenFromPosition(BenchmarkPosition position) {
+        return position.fenUtils.generateFenFromPosition(position.board.pieces);
+    }
+}
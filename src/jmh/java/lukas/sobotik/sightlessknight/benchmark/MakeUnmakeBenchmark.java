@@ -0,0 +1,38 @@
+package lukas.sobotik.sightlessknight.benchmark;
+
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of playing and undoing moves on the board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakeUnmakeBenchmark {
+
+    /**
+     * Plays and undoes every legal move of the position, so every kind of move is covered.
+     */
+    @Benchmark
+    public void movePieceAndUndoMove(BenchmarkPosition position, Blackhole blackhole) {
+        Board board = position.board;
+        for (Move move : position.legalMoves) {
+            board.movePiece(move);
+            blackhole.consume(board.getZobristKey());
+            board.undoMove(move);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package lukas.sobotik.sightlessknight.benchmark;
+
+import lukas.sobotik.sightlessknight.gamelogic.BoardLocation;
+import lukas.sobotik.sightlessknight.gamelogic.Move;
+import lukas.sobotik.sightlessknight.gamelogic.MoveList;
+import lukas.sobotik.sightlessknight.gamelogic.Rules;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the legal move generation and the attack detection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    @Benchmark
+    public List<Move> getAllValidMovesForTeam(BenchmarkPosition position) {
+        return Rules.getAllValidMovesForTeam(position.turn, position.board, true);
+    }
+
+    @Benchmark
+    public MoveList getAllLegalMoves(BenchmarkPosition position, MoveListState moveListState) {
+        Rules.getAllLegalMoves(position.turn, position.board, moveListState.moveList);
+        return moveListState.moveList;
+    }
+
+    /**
+     * Checks every square of the board, as the attacks are looked up differently for every square.
+     */
+    @Benchmark
+    public void isSquareAttackedByEnemy(BenchmarkPosition position, Blackhole blackhole) {
+        Team team = position.turn;
+        for (int square = 0; square < 64; square++) {
+            blackhole.consume(Rules.isSquareAttackedByEnemy(BoardLocation.fromIndex(square), team, position.board));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MoveListState {
+        final MoveList moveList = new MoveList();
+    }
+}
@@ -1,6 +1,7 @@
 package lukas.sobotik.sightlessknight;
 
 import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.server.PWA;
 import com.vaadin.flow.theme.Theme;
 import com.vaadin.flow.theme.lumo.Lumo;
@@ -14,8 +15,12 @@ import org.springframework.boot.web.servlet.support.SpringBootServletInitializer
  * Use the @PWA annotation make the application installable on phones, tablets
  * and some desktop browsers.
  *
+ * Use the @Push annotation so that background work, e.g. a running perft job,
+ * can update the views without waiting for a request from the browser.
+ *
  */
 @SpringBootApplication
+@Push
 @PWA(name = "SightlessKnight", shortName = "SightKn", manifestPath = "manifest.json")
 @Theme(value = "sightlessknight", variant = Lumo.DARK)
 public class Application extends SpringBootServletInitializer implements AppShellConfigurator {
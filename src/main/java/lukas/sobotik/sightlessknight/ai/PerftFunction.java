@@ -4,7 +4,10 @@ import lukas.sobotik.sightlessknight.gamelogic.Board;
 import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
 import lukas.sobotik.sightlessknight.gamelogic.GameState;
 import lukas.sobotik.sightlessknight.gamelogic.Move;
+import lukas.sobotik.sightlessknight.gamelogic.MoveList;
+import lukas.sobotik.sightlessknight.gamelogic.PackedMove;
 import lukas.sobotik.sightlessknight.gamelogic.Piece;
+import lukas.sobotik.sightlessknight.gamelogic.Position;
 import lukas.sobotik.sightlessknight.gamelogic.Rules;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 import lukas.sobotik.sightlessknight.views.play.PlayView;
@@ -14,11 +17,28 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class PerftFunction {
+    /**
+     * Minimum depth from which the parallel Perft Function also splits the tree at the second ply,
+     * the few root moves alone would leave most cores idle while the largest subtrees are counted.
+     */
+    static final int SECOND_PLY_SPLIT_DEPTH = 5;
+
     Board board;
     GameState gameState;
     PlayView view;
+    MoveList[] moveLists;
+    PerftTable perftTable;
+    /**
+     * The job this Perft Function counts the positions for, or null. A cancelled job stops the function.
+     */
+    PerftJob job;
+
     /**
      * Constructs a PerftFunction object.
      *
@@ -27,12 +47,25 @@ public class PerftFunction {
      * @param view the PlayView object representing the view of the game
      */
     public PerftFunction(Board board, GameState gameState, PlayView view) {
+        this(board, gameState, view, null);
+    }
+
+    /**
+     * Constructs a PerftFunction object that looks up the subtrees in a transposition table.
+     * Transpositions are counted only once, which speeds up deep Perft runs considerably.
+     *
+     * @param board the Board object representing the current state of the chessboard
+     * @param gameState the GameState object representing the current state of the game
+     * @param view the PlayView object representing the view of the game
+     * @param perftTable the table of counted subtrees, can be shared by several Perft Functions, or null to count every subtree
+     */
+    public PerftFunction(Board board, GameState gameState, PlayView view, PerftTable perftTable) {
         this.board = board;
         this.gameState = gameState;
         this.view = view;
+        this.perftTable = perftTable;
 
-        GameState.moveNumber = 0;
-        GameState.enPassantCaptures = 0;
+        gameState.moveNumber = 0;
     }
 
     /**
@@ -43,21 +76,34 @@ public class PerftFunction {
      * @param debug whether to preform a resource intensive check that helps with debugging.
      * @return number of positions generated by the Perft Function.
      */
-    public double playMoves(int depth, Team turn, boolean log, boolean debug, boolean isFirstCall) {
+    public long playMoves(int depth, Team turn, boolean log, boolean debug, boolean isFirstCall) {
         if (depth == 0) return 1;
+        if (job != null && job.isCancelled()) throw new CancellationException("The perft job was cancelled");
+
+        // Subtrees of depth 1 are cheaper to count than to look up, the root is counted to log the split results
+        boolean useTable = perftTable != null && depth > 1 && !isFirstCall;
+        if (useTable) {
+            long storedPositions = perftTable.probe(gameState.board.getZobristKey(), depth);
+            if (storedPositions >= 0) return storedPositions;
+        }
+
+        MoveList moves = getMoveList(depth);
+        Rules.getAllLegalMoves(turn, gameState.board, moves);
+        // Bulk counting, every legal move (including each promotion piece) leads to exactly one leaf, so the moves don't have to be played
+        if (depth == 1 && !isFirstCall && !debug) return moves.size();
 
         var fenUtils = new FenUtils(gameState.board.pieces);
         String beforeFen = "", moveFen = "", afterFen = "";
-        List<Move> moves = Rules.getAllValidMovesForTeam(turn, gameState.board, true);
-        double numberOfPositions = 0;
-        Map<String, Double> numberOfPositionsOnMove = new HashMap<>();
+        long numberOfPositions = 0;
+        Map<String, Long> numberOfPositionsOnMove = new HashMap<>();
 
-        for (Move move : moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            Move move = PackedMove.toMove(moves.get(i), gameState.board);
             debugPause(numberOfPositions, move, depth);
             if (debug) beforeFen = fenUtils.generateFenFromPosition(gameState.getBoard().pieces, turn);
             gameState.playMove(move, true);
 
-            double positions = playMoves(depth - 1, turn == Team.BLACK ? Team.WHITE : Team.BLACK, log, debug, false);
+            long positions = playMoves(depth - 1, turn == Team.BLACK ? Team.WHITE : Team.BLACK, log, debug, false);
             numberOfPositions += positions;
             addPositionsToHashMap(move, numberOfPositionsOnMove, positions);
             debugPause(numberOfPositions, move, depth);
@@ -79,16 +125,219 @@ public class PerftFunction {
             }
         }
 
+        if (useTable) {
+            perftTable.store(gameState.board.getZobristKey(), depth, numberOfPositions);
+        }
+        return numberOfPositions;
+    }
+
+    /**
+     * Parallel version of the Perft Function, counted by the common fork/join pool.
+     * @param depth depth of the Perft Function.
+     * @param turn Team whose turn it is.
+     * @param log whether to log the number of positions after every root move.
+     * @return number of positions generated by the Perft Function.
+     * @see #divideParallel(int, Team, ForkJoinPool)
+     */
+    public long playMovesParallel(int depth, Team turn, boolean log) {
+        if (depth == 0) return 1;
+
+        Map<String, Long> numberOfPositionsOnMove = divideParallel(depth, turn, ForkJoinPool.commonPool());
+        long numberOfPositions = 0;
+        for (long positions : numberOfPositionsOnMove.values()) {
+            numberOfPositions += positions;
+        }
+
+        if (log) {
+            System.out.println("------------------------------------------");
+            for (var entry : numberOfPositionsOnMove.entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            }
+        }
+
         return numberOfPositions;
     }
 
+    /**
+     * Counts the positions after every root move, also known as divide.
+     * Comparing the split results with another engine shows which move leads to a wrong number of positions.
+     * @param depth depth of the Perft Function, at least 1.
+     * @param turn Team whose turn it is.
+     * @return number of positions after every root move, keyed by the move in UCI notation (e.g. e2e4, a7a8q) and sorted by it.
+     */
+    public Map<String, Long> divide(int depth, Team turn) {
+        MoveList moves = new MoveList();
+        Rules.getAllLegalMoves(turn, gameState.board, moves);
+        Map<String, Long> numberOfPositionsOnMove = new TreeMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            Move move = PackedMove.toMove(moves.get(i), gameState.board);
+            gameState.playMove(move, true);
+            long positions = playMoves(depth - 1, turn == Team.BLACK ? Team.WHITE : Team.BLACK, false, false, false);
+            gameState.undoMove(move);
+            addPositionsToHashMap(move, numberOfPositionsOnMove, positions);
+        }
+        return numberOfPositionsOnMove;
+    }
+
+    /**
+     * Parallel version of {@link #divide(int, Team)}.
+     * The tree is split at the root, and from {@link #SECOND_PLY_SPLIT_DEPTH} also at the second ply,
+     * and the subtrees are counted by the fork/join pool, each on its own copy of the board.
+     * The board of this Perft Function is only read, so it can't be modified until the method returns.
+     * @param depth depth of the Perft Function, at least 1.
+     * @param turn Team whose turn it is.
+     * @param pool the pool that counts the subtrees, its parallelism is the number of threads used.
+     * @return number of positions after every root move, keyed by the move in UCI notation and sorted by it.
+     */
+    public Map<String, Long> divideParallel(int depth, Team turn, ForkJoinPool pool) {
+        return divideParallel(depth, turn, pool, null);
+    }
+
+    /**
+     * Parallel version of {@link #divide(int, Team)} that reports its progress to a job and stops when the job is cancelled.
+     * @param depth depth of the Perft Function, at least 1.
+     * @param turn Team whose turn it is.
+     * @param pool the pool that counts the subtrees, its parallelism is the number of threads used.
+     * @param job the job that receives the progress, or null.
+     * @return number of positions after every root move, keyed by the move in UCI notation and sorted by it.
+     * @throws CancellationException if the job was cancelled before all positions were counted.
+     * @see #divideParallel(int, Team, ForkJoinPool)
+     */
+    public Map<String, Long> divideParallel(int depth, Team turn, ForkJoinPool pool, PerftJob job) {
+        MoveList moves = new MoveList();
+        Rules.getAllLegalMoves(turn, gameState.board, moves);
+        if (job != null) job.start(moves.size());
+        int splitPlies = depth >= SECOND_PLY_SPLIT_DEPTH ? 1 : 0;
+        Position position = new Position(gameState.board);
+        List<PerftTask> tasks = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            PerftTask task = new PerftTask(gameState.board, position, turn, moves.get(i), depth - 1, splitPlies, perftTable, job, true);
+            pool.execute(task);
+            tasks.add(task);
+        }
+
+        Map<String, Long> numberOfPositionsOnMove = new TreeMap<>();
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                addPositionsToHashMap(PackedMove.toMove(moves.get(i), gameState.board), numberOfPositionsOnMove, tasks.get(i).join());
+            }
+        } catch (RuntimeException e) {
+            // Stops the remaining tasks, their results would be thrown away
+            if (job != null) job.cancel();
+            throw e;
+        }
+        return numberOfPositionsOnMove;
+    }
+
+    /**
+     * Task of the parallel Perft Function that counts the positions after one move.
+     * The task gets a {@link Position} snapshot of the parent position and plays the move on its own copy of it,
+     * then either splits again into one task per reply or counts the rest of the tree with a sequential Perft Function
+     * on a board created from the position.
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board layoutBoard;
+        private final Position parentPosition;
+        private final Team turn;
+        private final int packedMove;
+        private final int depth;
+        private final int splitPlies;
+        private final PerftTable perftTable;
+        private final PerftJob job;
+        private final boolean isRootMove;
+
+        /**
+         * Constructs a PerftTask object.
+         * @param layoutBoard board whose size and FEN utilities are used for the board of the task.
+         * @param parentPosition position before the move, it's copied by the task and must not change until the task finishes.
+         * @param turn Team that plays the move.
+         * @param packedMove the move packed by {@link PackedMove}.
+         * @param depth remaining depth after the move.
+         * @param splitPlies number of plies after the move at which the tree is split into further tasks.
+         * @param perftTable the table of counted subtrees shared by all tasks, or null.
+         * @param job the job that receives the progress of all tasks, or null.
+         * @param isRootMove whether the move is played from the root position.
+         */
+        PerftTask(Board layoutBoard, Position parentPosition, Team turn, int packedMove, int depth, int splitPlies, PerftTable perftTable, PerftJob job, boolean isRootMove) {
+            this.layoutBoard = layoutBoard;
+            this.parentPosition = parentPosition;
+            this.turn = turn;
+            this.packedMove = packedMove;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+            this.perftTable = perftTable;
+            this.job = job;
+            this.isRootMove = isRootMove;
+        }
+
+        @Override
+        protected Long compute() {
+            if (job == null) return count();
+            if (job.isCancelled()) throw new CancellationException("The perft job was cancelled");
+
+            long numberOfPositions = count();
+            if (isRootMove) job.finishRootMove();
+            return numberOfPositions;
+        }
+
+        private long count() {
+            if (depth == 0) {
+                if (job != null) job.addPositions(1);
+                return 1;
+            }
+
+            Position position = parentPosition.copy();
+            position.makeMove(packedMove);
+            Team nextTurn = turn == Team.BLACK ? Team.WHITE : Team.BLACK;
+            Board board = new Board(layoutBoard, position);
+            GameState gameState = new GameState(board, nextTurn, false);
+
+            if (splitPlies == 0 || depth == 1) {
+                PerftFunction perftFunction = new PerftFunction(board, gameState, null, perftTable);
+                perftFunction.job = job;
+                long numberOfPositions = perftFunction.playMoves(depth, nextTurn, false, false, false);
+                if (job != null) job.addPositions(numberOfPositions);
+                return numberOfPositions;
+            }
+
+            MoveList moves = new MoveList();
+            Rules.getAllLegalMoves(nextTurn, board, moves);
+            List<PerftTask> tasks = new ArrayList<>();
+            for (int i = 0; i < moves.size(); i++) {
+                tasks.add(new PerftTask(layoutBoard, position, nextTurn, moves.get(i), depth - 1, splitPlies - 1, perftTable, job, false));
+            }
+            long numberOfPositions = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                numberOfPositions += task.join();
+            }
+            return numberOfPositions;
+        }
+    }
+
+    /**
+     * Returns the move list for the given depth, so that every ply reuses the same list instead of allocating a new one.
+     * @param depth remaining depth of the Perft Function.
+     * @return the move list for the given depth.
+     */
+    private MoveList getMoveList(int depth) {
+        if (moveLists == null || moveLists.length <= depth) {
+            moveLists = new MoveList[depth + 1];
+            for (int i = 0; i <= depth; i++) {
+                moveLists[i] = new MoveList();
+            }
+        }
+        return moveLists[depth];
+    }
+
     /**
      * Method used only for logging the split results of the Perft function.
      * @param move move that was played.
      * @param numberOfPositionsOnMove map that stores the split results of the Perft function.
      * @param positions number of positions generated by the Perft Function.
      */
-    private static void addPositionsToHashMap(final Move move, final Map<String, Double> numberOfPositionsOnMove, final double positions) {
+    private static void addPositionsToHashMap(final Move move, final Map<String, Long> numberOfPositionsOnMove, final long positions) {
         if (move.getPromotionPiece() != null) {
             numberOfPositionsOnMove.put(move.getFrom().getAlgebraicNotationLocation()
                             + move.getTo().getAlgebraicNotationLocation()
@@ -127,7 +376,7 @@ public class PerftFunction {
      * @param numberOfPositions number of positions for the Perft Function generated so far
      * @param move what move the Perft Function is currently processing
      */
-    private void debugPause(double numberOfPositions, Move move, int depth) {
+    private void debugPause(long numberOfPositions, Move move, int depth) {
         boolean pause = false;
 
 //        if (move.getMovedPiece().type == PieceType.PAWN) pause = true;
@@ -0,0 +1,164 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One Perft Function run submitted to the {@link PerftJobService}.
+ * The job is the handle of the run, it can be cancelled and it reports the progress of the run while the positions are counted.
+ * <p>
+ * The progress is updated by the tasks of the parallel Perft Function: the number of positions grows every time a subtree is counted,
+ * and the remaining time is estimated from the number of root moves whose subtrees have been counted.
+ */
+public class PerftJob {
+    /**
+     * Receives the progress and the result of a job, it's called from the threads of the {@link PerftJobService}.
+     */
+    public interface Listener {
+        /**
+         * Called periodically while the job is running.
+         * @param job the running job.
+         */
+        void onProgress(PerftJob job);
+
+        /**
+         * Called once when the job has finished, was cancelled or failed.
+         * @param job the finished job.
+         */
+        void onFinished(PerftJob job);
+    }
+
+    public enum State {
+        RUNNING, FINISHED, CANCELLED, FAILED
+    }
+
+    final String sessionId;
+    final int depth;
+    final Team turn;
+    final Listener listener;
+    private final long startNanos;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final LongAdder positions = new LongAdder();
+    private final AtomicInteger finishedRootMoves = new AtomicInteger();
+    private volatile int rootMoves = -1;
+    private volatile long endNanos;
+    private volatile State state = State.RUNNING;
+    private volatile Map<String, Long> result;
+    private volatile Throwable failure;
+
+    PerftJob(String sessionId, int depth, Team turn, Listener listener) {
+        this.sessionId = sessionId;
+        this.depth = depth;
+        this.turn = turn;
+        this.listener = listener;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Method that asks the job to stop, the running tasks stop at the next position they count.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return true if the job was asked to stop.
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return the state of the job.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the depth the positions are counted at.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return number of positions counted so far, the total number of positions when the job has finished.
+     */
+    public long getPositions() {
+        return positions.sum();
+    }
+
+    /**
+     * @return time since the job was submitted until now, or until it finished, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        long end = state == State.RUNNING ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000;
+    }
+
+    /**
+     * @return number of positions counted per second so far.
+     */
+    public long getPositionsPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis == 0 ? 0 : getPositions() * 1000 / elapsedMillis;
+    }
+
+    /**
+     * Method that estimates the time until the job finishes from the share of root moves whose subtrees have been counted.
+     * @return estimated remaining time in milliseconds, or -1 if no root move has been counted yet.
+     */
+    public long getEstimatedRemainingMillis() {
+        int finished = finishedRootMoves.get();
+        int total = rootMoves;
+        if (state != State.RUNNING) return 0;
+        if (finished == 0 || total <= 0) return -1;
+        return getElapsedMillis() * (total - finished) / finished;
+    }
+
+    /**
+     * @return number of positions after every root move keyed by the move in UCI notation, or null if the job hasn't finished.
+     */
+    public Map<String, Long> getResult() {
+        return result;
+    }
+
+    /**
+     * @return the exception that stopped the job, or null if it didn't fail.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    void start(int rootMoves) {
+        this.rootMoves = rootMoves;
+    }
+
+    void addPositions(long positions) {
+        this.positions.add(positions);
+    }
+
+    void finishRootMove() {
+        finishedRootMoves.incrementAndGet();
+    }
+
+    void finish(Map<String, Long> result) {
+        this.result = result;
+        end(State.FINISHED);
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+        end(State.FAILED);
+    }
+
+    void end(State state) {
+        endNanos = System.nanoTime();
+        this.state = state;
+    }
+}
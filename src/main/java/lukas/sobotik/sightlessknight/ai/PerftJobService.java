@@ -0,0 +1,223 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.GameState;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the Perft Function jobs of all sessions on one shared pool with a bounded number of threads.
+ * <p>
+ * Every job counts the positions on its own copy of the board, so the game of the session can continue while the job runs.
+ * The number of running jobs is limited for the whole server and for every session, a job that exceeds the limits is rejected.
+ * While a job runs, its listener periodically receives the progress, and a job that runs longer than the time limit is cancelled.
+ */
+public class PerftJobService {
+    /**
+     * Number of threads of the shared service, half of the cores are left for the web server.
+     */
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int DEFAULT_MAX_JOBS = 2;
+    public static final int DEFAULT_MAX_JOBS_PER_SESSION = 1;
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private static final PerftJobService SHARED = new PerftJobService(DEFAULT_THREADS, DEFAULT_MAX_JOBS, DEFAULT_MAX_JOBS_PER_SESSION,
+            DEFAULT_TIME_LIMIT_MILLIS, DEFAULT_PROGRESS_INTERVAL_MILLIS, PerftTable.DEFAULT_SIZE_IN_MEGABYTES);
+
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService progressScheduler;
+    private final int maxJobs;
+    private final int maxJobsPerSession;
+    private final long timeLimitMillis;
+    private final long progressIntervalMillis;
+    private final int hashSizeInMegabytes;
+    private final List<PerftJob> runningJobs = new ArrayList<>();
+
+    /**
+     * Constructs a PerftJobService object.
+     *
+     * @param threads the number of threads shared by all jobs
+     * @param maxJobs the maximum number of jobs running at the same time
+     * @param maxJobsPerSession the maximum number of jobs of one session running at the same time
+     * @param timeLimitMillis the time after which a running job is cancelled, in milliseconds
+     * @param progressIntervalMillis the time between two progress updates of a job, in milliseconds
+     * @param hashSizeInMegabytes the size of the transposition table of every job, 0 counts every subtree
+     */
+    public PerftJobService(int threads, int maxJobs, int maxJobsPerSession, long timeLimitMillis, long progressIntervalMillis, int hashSizeInMegabytes) {
+        if (threads < 1 || maxJobs < 1 || maxJobsPerSession < 1 || timeLimitMillis < 1 || progressIntervalMillis < 1 || hashSizeInMegabytes < 0) {
+            throw new IllegalArgumentException("The limits of the perft job service must be positive and the hash size can't be negative");
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.progressScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "perft-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxJobs = maxJobs;
+        this.maxJobsPerSession = maxJobsPerSession;
+        this.timeLimitMillis = timeLimitMillis;
+        this.progressIntervalMillis = progressIntervalMillis;
+        this.hashSizeInMegabytes = hashSizeInMegabytes;
+    }
+
+    /**
+     * @return the service shared by all sessions of the application.
+     */
+    public static PerftJobService getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Method that starts counting the positions of a board.
+     * The board is copied before the method returns, so it can be changed while the job runs.
+     *
+     * @param sessionId the session that submits the job, its running jobs count towards its quota
+     * @param board the board whose positions are counted
+     * @param turn the Team whose turn it is
+     * @param depth the depth of the Perft Function, at least 1
+     * @param listener the listener that receives the progress and the result of the job
+     * @return the submitted job
+     * @throws RejectedExecutionException if the server or the session already runs the maximum number of jobs
+     */
+    public PerftJob submit(String sessionId, Board board, Team turn, int depth, PerftJob.Listener listener) {
+        if (depth < 1) throw new IllegalArgumentException("The depth must be positive, got " + depth);
+
+        Board boardCopy = new Board(board);
+        PerftJob job = new PerftJob(sessionId, depth, turn, listener);
+        synchronized (runningJobs) {
+            if (countJobs(sessionId) >= maxJobsPerSession) {
+                throw new RejectedExecutionException("A perft job is already running, stop it with /perft stop");
+            }
+            if (runningJobs.size() >= maxJobs) {
+                throw new RejectedExecutionException("The server is busy, try again later");
+            }
+            runningJobs.add(job);
+        }
+
+        // The slot of the job is released by the job itself once it runs, or here if it can't be started
+        ScheduledFuture<?> progressUpdates = null;
+        boolean started = false;
+        try {
+            progressUpdates = progressScheduler.scheduleAtFixedRate(() -> updateProgress(job),
+                    progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> jobProgressUpdates = progressUpdates;
+            pool.execute(() -> run(job, boardCopy, jobProgressUpdates));
+            started = true;
+        } finally {
+            if (!started) {
+                if (progressUpdates != null) progressUpdates.cancel(false);
+                remove(job);
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Method that cancels all running jobs of a session.
+     *
+     * @param sessionId the session whose jobs are cancelled
+     * @return the number of cancelled jobs
+     */
+    public int cancel(String sessionId) {
+        int cancelledJobs = 0;
+        synchronized (runningJobs) {
+            for (PerftJob job : runningJobs) {
+                if (job.sessionId.equals(sessionId) && !job.isCancelled()) {
+                    job.cancel();
+                    cancelledJobs++;
+                }
+            }
+        }
+        return cancelledJobs;
+    }
+
+    /**
+     * @param sessionId the session whose jobs are returned
+     * @return the running jobs of a session
+     */
+    public List<PerftJob> getRunningJobs(String sessionId) {
+        List<PerftJob> jobs = new ArrayList<>();
+        synchronized (runningJobs) {
+            for (PerftJob job : runningJobs) {
+                if (job.sessionId.equals(sessionId)) jobs.add(job);
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Method that cancels all running jobs and stops the threads of the service.
+     */
+    public void shutdown() {
+        synchronized (runningJobs) {
+            for (PerftJob job : runningJobs) {
+                job.cancel();
+            }
+        }
+        pool.shutdown();
+        progressScheduler.shutdown();
+    }
+
+    private void run(PerftJob job, Board board, ScheduledFuture<?> progressUpdates) {
+        try {
+            // The table is allocated here, on a thread of the pool, instead of on the thread that submits the job
+            PerftTable perftTable = hashSizeInMegabytes > 0 ? new PerftTable(hashSizeInMegabytes) : null;
+            PerftFunction perftFunction = new PerftFunction(board, new GameState(board, job.turn, false), null, perftTable);
+            Map<String, Long> result = perftFunction.divideParallel(job.depth, job.turn, pool, job);
+            job.finish(result);
+        } catch (OutOfMemoryError e) {
+            // Only the table of this job is lost, the service and the other jobs can continue
+            job.fail(e);
+        } catch (RuntimeException e) {
+            // The exception of a task can be rethrown wrapped or as a copy, so the flag of the job decides whether it was cancelled
+            if (job.isCancelled() || e instanceof CancellationException) {
+                job.end(PerftJob.State.CANCELLED);
+            } else {
+                job.fail(e);
+            }
+        } finally {
+            progressUpdates.cancel(false);
+            remove(job);
+        }
+        try {
+            job.listener.onFinished(job);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void updateProgress(PerftJob job) {
+        if (job.getElapsedMillis() > timeLimitMillis) job.cancel();
+        try {
+            if (job.getState() == PerftJob.State.RUNNING) job.listener.onProgress(job);
+        } catch (RuntimeException e) {
+            // An exception would stop the following updates
+            e.printStackTrace();
+        }
+    }
+
+    private void remove(PerftJob job) {
+        synchronized (runningJobs) {
+            runningJobs.remove(job);
+        }
+    }
+
+    private int countJobs(String sessionId) {
+        int jobs = 0;
+        for (PerftJob job : runningJobs) {
+            if (job.sessionId.equals(sessionId)) jobs++;
+        }
+        return jobs;
+    }
+}
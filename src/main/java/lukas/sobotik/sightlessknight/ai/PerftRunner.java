@@ -0,0 +1,242 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
+import lukas.sobotik.sightlessknight.gamelogic.GameState;
+import lukas.sobotik.sightlessknight.gamelogic.Piece;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless runner of the Perft Function, it runs without starting Spring or Vaadin.
+ * It reads a perft suite in the EPD format, where every line is a position followed by the expected numbers of positions
+ * (e.g. {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400}), counts every position at the chosen depth
+ * and reports the time, number of positions and positions per second. When a count doesn't match,
+ * the split results (divide) are printed, so the wrong move can be found by comparing them with another engine.
+ * <p>
+ * Usage: {@code PerftRunner [--epd <file>] [--depth <n>] [--threads <n>] [--hash <megabytes>]}.
+ * Without a file, the suite bundled in {@value #DEFAULT_SUITE} is used. Positions without the expected count
+ * for the chosen depth are counted at the deepest depth they have below it. The process exits with 1 if any count doesn't match.
+ */
+public class PerftRunner {
+    static final String DEFAULT_SUITE = "/perft/standard.epd";
+    static final int DEFAULT_DEPTH = 5;
+    /**
+     * Depth of the untimed pass over the suite before the measured one, so the measured times don't include class loading and JIT compilation.
+     */
+    static final int WARM_UP_DEPTH = 3;
+
+    private PerftRunner() {
+
+    }
+
+    public static void main(String[] args) {
+        String epdFile = null;
+        int depth = DEFAULT_DEPTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashSize = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--epd" -> epdFile = getValue(args, ++i);
+                    case "--depth" -> depth = Integer.parseInt(getValue(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(getValue(args, ++i));
+                    case "--hash" -> hashSize = Integer.parseInt(getValue(args, ++i));
+                    default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+            if (depth < 1 || threads < 1 || hashSize < 0) {
+                throw new IllegalArgumentException("The depth and the number of threads must be positive and the hash size can't be negative");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: PerftRunner [--epd <file>] [--depth <n>] [--threads <n>] [--hash <megabytes>]");
+            System.exit(2);
+            return;
+        }
+
+        List<EpdEntry> entries;
+        try {
+            entries = readSuite(epdFile);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Couldn't read the perft suite: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        boolean passed = run(entries, depth, threads, hashSize);
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Counts every position of the suite and prints the results.
+     * @param entries positions of the suite.
+     * @param depth depth to count the positions at.
+     * @param threads number of threads, 1 counts the positions sequentially.
+     * @param hashSize size of the transposition table in megabytes, 0 counts every subtree.
+     * @return true if every count matches the expected one.
+     */
+    static boolean run(List<EpdEntry> entries, int depth, int threads, int hashSize) {
+        System.out.println("Depth " + depth + ", " + threads + (threads == 1 ? " thread" : " threads")
+                + (hashSize > 0 ? ", " + hashSize + " MB hash" : ", no hash"));
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        long totalPositions = 0;
+        long totalNanos = 0;
+        int passedEntries = 0;
+        try {
+            for (EpdEntry entry : entries) {
+                divide(entry, Math.min(WARM_UP_DEPTH, depth), pool, null);
+            }
+
+            for (int i = 0; i < entries.size(); i++) {
+                EpdEntry entry = entries.get(i);
+                int entryDepth = entry.getDepth(depth);
+                PerftTable perftTable = hashSize > 0 ? new PerftTable(hashSize) : null;
+
+                long start = System.nanoTime();
+                Map<String, Long> divide = divide(entry, entryDepth, pool, perftTable);
+                long nanos = System.nanoTime() - start;
+
+                long positions = 0;
+                for (long movePositions : divide.values()) {
+                    positions += movePositions;
+                }
+                totalPositions += positions;
+                totalNanos += nanos;
+
+                Long expectedPositions = entry.expectedPositions.get(entryDepth);
+                boolean passed = expectedPositions == null || expectedPositions == positions;
+                if (passed) passedEntries++;
+                System.out.printf("#%d depth %d: %d positions in %d ms (%d nps) %s%n", i + 1, entryDepth, positions, nanos / 1_000_000,
+                        getPositionsPerSecond(positions, nanos), expectedPositions == null ? "" : passed ? "OK" : "MISMATCH, expected " + expectedPositions);
+                if (!passed) {
+                    System.out.println("  " + entry.fen);
+                    for (var move : divide.entrySet()) {
+                        System.out.println("  " + move.getKey() + ": " + move.getValue());
+                    }
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+
+        System.out.printf("Total: %d positions in %d ms (%d nps), %d of %d positions passed%n", totalPositions, totalNanos / 1_000_000,
+                getPositionsPerSecond(totalPositions, totalNanos), passedEntries, entries.size());
+        return passedEntries == entries.size();
+    }
+
+    /**
+     * Counts the positions after every root move of a position of the suite.
+     * @param entry position of the suite.
+     * @param depth depth to count the position at.
+     * @param pool the pool that counts the subtrees, or null to count them sequentially.
+     * @param perftTable the table of counted subtrees, or null to count every subtree.
+     * @return number of positions after every root move.
+     */
+    private static Map<String, Long> divide(EpdEntry entry, int depth, ForkJoinPool pool, PerftTable perftTable) {
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(entry.fen);
+        Board board = new Board(8, pieces, fenUtils);
+        Team turn = fenUtils.getStartingTeam() == Team.BLACK ? Team.BLACK : Team.WHITE;
+        GameState gameState = new GameState(board, turn, false);
+        PerftFunction perftFunction = new PerftFunction(board, gameState, null, perftTable);
+        return pool == null ? perftFunction.divide(depth, turn) : perftFunction.divideParallel(depth, turn, pool);
+    }
+
+    /**
+     * Reads a perft suite in the EPD format, empty lines and lines starting with # are skipped.
+     * @param epdFile path of the file, or null for the bundled suite.
+     * @return the positions of the suite.
+     * @throws IOException if the file can't be read.
+     */
+    static List<EpdEntry> readSuite(String epdFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (epdFile != null) {
+            lines = Files.readAllLines(Path.of(epdFile), StandardCharsets.UTF_8);
+        } else {
+            try (InputStream inputStream = PerftRunner.class.getResourceAsStream(DEFAULT_SUITE)) {
+                if (inputStream == null) throw new IOException("The bundled suite " + DEFAULT_SUITE + " is missing");
+                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        List<EpdEntry> entries = new ArrayList<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            entries.add(EpdEntry.parse(line));
+        }
+        return entries;
+    }
+
+    private static String getValue(String[] args, int index) {
+        if (index >= args.length) throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+        return args[index];
+    }
+
+    private static long getPositionsPerSecond(long positions, long nanos) {
+        return nanos == 0 ? 0 : positions * 1_000_000_000L / nanos;
+    }
+
+    /**
+     * One position of a perft suite with the expected numbers of positions at each depth.
+     */
+    static final class EpdEntry {
+        final String fen;
+        final TreeMap<Integer, Long> expectedPositions;
+
+        private EpdEntry(String fen, TreeMap<Integer, Long> expectedPositions) {
+            this.fen = fen;
+            this.expectedPositions = expectedPositions;
+        }
+
+        /**
+         * Parses a line of a perft suite, e.g. {@code 8/8/8/8/8/8/8/K1k5 w - - ;D1 3 ;D2 9}.
+         * @param line the line to parse.
+         * @return the parsed position.
+         */
+        static EpdEntry parse(String line) {
+            String[] fields = line.split(";");
+            TreeMap<Integer, Long> expectedPositions = new TreeMap<>();
+            for (int i = 1; i < fields.length; i++) {
+                String[] operation = fields[i].trim().split("\\s+");
+                if (operation.length != 2 || !operation[0].startsWith("D")) {
+                    throw new IllegalArgumentException("Invalid perft operation \"" + fields[i].trim() + "\" in line: " + line);
+                }
+                try {
+                    expectedPositions.put(Integer.parseInt(operation[0].substring(1)), Long.parseLong(operation[1]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid perft operation \"" + fields[i].trim() + "\" in line: " + line);
+                }
+            }
+            return new EpdEntry(fields[0].trim(), expectedPositions);
+        }
+
+        /**
+         * Returns the depth to count the position at, the chosen depth or the deepest expected count below it.
+         * @param depth the chosen depth.
+         * @return the depth to count the position at.
+         */
+        int getDepth(int depth) {
+            Integer expectedDepth = expectedPositions.floorKey(depth);
+            return expectedDepth == null ? depth : expectedDepth;
+        }
+    }
+}
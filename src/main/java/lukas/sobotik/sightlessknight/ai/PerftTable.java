@@ -0,0 +1,76 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for the Perft Function, storing the number of positions of a subtree
+ * by the Zobrist key of its root position and the remaining depth.
+ * <p>
+ * The table can be shared by the threads of the parallel Perft Function without any locking.
+ * Every entry is stored as two longs, the data and the key XOR-ed with the data, so an entry that was
+ * torn by two threads writing it at the same time doesn't verify and is treated as a miss.
+ * Entries are always replaced, a lost entry only costs recounting its subtree.
+ */
+public class PerftTable {
+    /**
+     * Size of the table of every job of the /perft command.
+     */
+    public static final int DEFAULT_SIZE_IN_MEGABYTES = 64;
+
+    private static final int ENTRY_SIZE_IN_BYTES = 2 * Long.BYTES;
+    private static final int DEPTH_BITS = 8;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int indexMask;
+
+    /**
+     * Constructs a PerftTable object.
+     *
+     * @param sizeInMegabytes the memory used by the table, rounded down to a power of two number of entries
+     */
+    public PerftTable(int sizeInMegabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, (long) sizeInMegabytes * 1024 * 1024 / ENTRY_SIZE_IN_BYTES));
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        data = new long[size];
+        indexMask = size - 1;
+    }
+
+    /**
+     * Returns the stored number of positions of a subtree.
+     *
+     * @param zobristKey the Zobrist key of the root position of the subtree
+     * @param depth the remaining depth of the subtree
+     * @return the number of positions, or -1 if the subtree isn't stored
+     */
+    public long probe(long zobristKey, int depth) {
+        int index = (int) zobristKey & indexMask;
+        long entryData = data[index];
+        if ((keys[index] ^ entryData) != zobristKey || (entryData & DEPTH_MASK) != depth) return -1;
+        return entryData >>> DEPTH_BITS;
+    }
+
+    /**
+     * Stores the number of positions of a subtree, replacing the entry that was stored in its place.
+     *
+     * @param zobristKey the Zobrist key of the root position of the subtree
+     * @param depth the remaining depth of the subtree (0-255)
+     * @param positions the number of positions of the subtree
+     */
+    public void store(long zobristKey, int depth, long positions) {
+        int index = (int) zobristKey & indexMask;
+        long entryData = (positions << DEPTH_BITS) | depth;
+        data[index] = entryData;
+        keys[index] = zobristKey ^ entryData;
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+}
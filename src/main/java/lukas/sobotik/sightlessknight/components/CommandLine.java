@@ -3,17 +3,18 @@ package lukas.sobotik.sightlessknight.components;
 import com.vaadin.flow.component.ClickEvent;
 import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.Key;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.textfield.TextField;
-import lukas.sobotik.sightlessknight.ai.PerftFunction;
-import lukas.sobotik.sightlessknight.gamelogic.GameState;
+import lukas.sobotik.sightlessknight.ai.PerftJob;
+import lukas.sobotik.sightlessknight.ai.PerftJobService;
 import lukas.sobotik.sightlessknight.gamelogic.Move;
 import lukas.sobotik.sightlessknight.views.play.PlayView;
 
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class CommandLine extends HorizontalLayout {
@@ -21,6 +22,10 @@ public class CommandLine extends HorizontalLayout {
     Button enterButton, tooltipButton;
     TextField textField;
     CommandLineTooltip tooltip = new CommandLineTooltip();
+    /**
+     * The perft job started from this command line, other views of the same session have their own jobs.
+     */
+    private PerftJob perftJob;
     public CommandLine(PlayView playView) {
         setClassName("text_field_layout");
         addClassName("command_line_parent");
@@ -49,6 +54,11 @@ public class CommandLine extends HorizontalLayout {
 
 //        onTextChange();
 
+        // A perft job of a closed view would only keep the shared threads busy
+        addDetachListener(event -> {
+            if (perftJob != null) perftJob.cancel();
+        });
+
         enterButton.addClickListener(event -> {
             var command = textField.getValue();
             if (!command.startsWith("/")) {
@@ -65,13 +75,16 @@ public class CommandLine extends HorizontalLayout {
                 playView.gameState.moveHistory.remove(playView.gameState.moveHistory.size() - 1);
             }
             if (command.startsWith("/perft")) {
+                if (split.length == 2 && split[1].equals("stop")) {
+                    if (perftJob == null || perftJob.isCancelled() || perftJob.getState() != PerftJob.State.RUNNING) {
+                        Notification.show("No perft job is running");
+                    } else {
+                        perftJob.cancel();
+                    }
+                    return;
+                }
                 if (split.length == 2) {
-                    var depth = Integer.parseInt(split[1]);
-                    var perftFunction = new PerftFunction(playView.gameState.board, playView.gameState, playView);
-                    Executors.newSingleThreadExecutor().execute(() -> {
-                        var positions = perftFunction.playMoves(depth, GameState.currentTurn, false, true, true);
-                        System.out.println("Positions: " + positions);
-                    });
+                    startPerftJob(playView, split[1]);
                     return;
                 }
                 Notification.show("Invalid amount of arguments");
@@ -79,6 +92,79 @@ public class CommandLine extends HorizontalLayout {
         });
     }
 
+    /**
+     * Method that starts counting the positions of the current position of the game in the shared perft job service.
+     * The job counts the positions on a copy of the board and shows its progress in the view until it finishes.
+     * @param playView the view of the game
+     * @param depthArgument the depth typed by the user
+     */
+    private void startPerftJob(PlayView playView, String depthArgument) {
+        int depth;
+        try {
+            depth = Integer.parseInt(depthArgument);
+        } catch (NumberFormatException e) {
+            Notification.show("Invalid depth");
+            return;
+        }
+        if (depth < 1) {
+            Notification.show("Invalid depth");
+            return;
+        }
+
+        UI ui = UI.getCurrent();
+        var listener = new PerftJob.Listener() {
+            @Override
+            public void onProgress(PerftJob job) {
+                access(ui, () -> playView.showPerftStatus(getPerftProgress(job)));
+            }
+
+            @Override
+            public void onFinished(PerftJob job) {
+                access(ui, () -> {
+                    if (perftJob == job) perftJob = null;
+                    playView.showPerftStatus(null);
+                    switch (job.getState()) {
+                        case FINISHED -> Notification.show("Perft " + job.getDepth() + ": " + job.getPositions() + " positions in " + job.getElapsedMillis() + " ms");
+                        case CANCELLED -> Notification.show("Perft " + job.getDepth() + " stopped after " + job.getPositions() + " positions");
+                        default -> Notification.show("Perft " + job.getDepth() + " failed");
+                    }
+                });
+            }
+        };
+
+        try {
+            perftJob = PerftJobService.getShared().submit(getSessionId(ui), playView.gameState.board, playView.gameState.currentTurn, depth, listener);
+            playView.showPerftStatus("Perft " + depth + ": starting");
+        } catch (RejectedExecutionException e) {
+            Notification.show(e.getMessage());
+        }
+    }
+
+    /**
+     * Method that formats the progress of a perft job, e.g. "Perft 6: 12000000 positions, 3000000 nps, 20 s left".
+     * @param job the running job
+     * @return the formatted progress
+     */
+    private static String getPerftProgress(PerftJob job) {
+        long remainingMillis = job.getEstimatedRemainingMillis();
+        return "Perft " + job.getDepth() + ": " + job.getPositions() + " positions, " + job.getPositionsPerSecond() + " nps, "
+                + (remainingMillis < 0 ? "estimating time left" : (remainingMillis + 999) / 1000 + " s left");
+    }
+
+    /**
+     * Method that updates the view from a thread of the perft job service, if the view is still open.
+     */
+    private static void access(UI ui, Runnable command) {
+        if (ui != null && ui.isAttached()) ui.access(command::run);
+    }
+
+    /**
+     * Method that returns the session a perft job is submitted for, the running jobs of a session count towards its quota.
+     */
+    private static String getSessionId(UI ui) {
+        return ui.getSession().getSession().getId();
+    }
+
     private void configureTextFieldTooltipBehavior() {
         final AtomicReference<String> textInTextField = new AtomicReference<>("");
         textField.addKeyDownListener(event -> {
@@ -10,7 +10,8 @@ public class CommandLineTooltip extends VerticalLayout {
 
     public final String[] commands = {
             "/undo",
-            "/perft <depth>"
+            "/perft <depth>",
+            "/perft stop"
     };
 
     Div content;
@@ -1,5 +1,6 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
 import lukas.sobotik.sightlessknight.gamelogic.entity.MoveFlag;
 import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
@@ -13,7 +14,7 @@ public class AlgebraicNotationUtils {
     FenUtils fenUtils;
     Board board;
     GameState gameState;
-    static boolean kinglessGame = false;
+    boolean kinglessGame;
 
     /**
      * Initializes the AlgebraicNotationUtils with the given parameters.
@@ -28,6 +29,7 @@ public class AlgebraicNotationUtils {
         this.fenUtils = fenUtils;
         this.gameState = gameState;
         this.board = board;
+        this.kinglessGame = gameState != null && gameState.kinglessGame;
     }
 
     /**
@@ -41,6 +43,7 @@ public class AlgebraicNotationUtils {
         this.fenUtils = fenUtils;
         this.gameState = gameState;
         this.board = board;
+        this.kinglessGame = gameState != null && gameState.kinglessGame;
     }
 
     /**
@@ -54,6 +57,7 @@ public class AlgebraicNotationUtils {
         this.fenUtils = fenUtils;
         this.gameState = gameState;
         this.board = board;
+        this.kinglessGame = gameState != null && gameState.kinglessGame;
     }
 
     /**
@@ -62,7 +66,7 @@ public class AlgebraicNotationUtils {
      * @param kinglessGame the new value to be assigned to kinglessGame
      */
     public void setKinglessGame(boolean kinglessGame) {
-        AlgebraicNotationUtils.kinglessGame = kinglessGame;
+        this.kinglessGame = kinglessGame;
     }
 
     /**
@@ -82,10 +86,8 @@ public class AlgebraicNotationUtils {
 
         switch (movedPiece.type) {
             case PAWN -> {
-                if (movedPiece.enPassant) {
+                if (move.getMoveFlag() == MoveFlag.enPassant) {
                     algebraicNotationMove = from.getAlgebraicNotationLocation().charAt(0) + "x" + to.getAlgebraicNotationLocation() + " e.p.";
-                    System.out.println(to.getAlgebraicNotationLocation());
-                    board.getPiece(to).enPassant = false;
                     break;
                 } else if (capturedPiece == null) {
                     algebraicNotationMove = to.getAlgebraicNotationLocation();
@@ -93,8 +95,8 @@ public class AlgebraicNotationUtils {
                     algebraicNotationMove = from.getAlgebraicNotationLocation().charAt(0) + "x" + to.getAlgebraicNotationLocation();
                 }
 
-                if (movedPiece.promotion != null) {
-                    algebraicNotationMove += "=" + fenUtils.getSymbolFromPieceType(movedPiece.promotion, Team.WHITE);
+                if (move.getPromotionPiece() != null) {
+                    algebraicNotationMove += "=" + fenUtils.getSymbolFromPieceType(move.getPromotionPiece(), Team.WHITE);
                 }
             }
             case KNIGHT -> algebraicNotationMove = disambiguatePieceMoves(move, PieceType.KNIGHT);
@@ -104,9 +106,12 @@ public class AlgebraicNotationUtils {
             case KING -> {
                 String pieceSymbol = String.valueOf(fenUtils.getSymbolFromPieceType(PieceType.KING, Team.WHITE));
 
-                if (movedPiece.castling != null) {
-                    algebraicNotationMove = movedPiece.castling;
-                    board.getPiece(to).castling = null;
+                if (move.getMoveFlag() == MoveFlag.kingsideCastling) {
+                    algebraicNotationMove = "O-O";
+                    break;
+                }
+                if (move.getMoveFlag() == MoveFlag.queensideCastling) {
+                    algebraicNotationMove = "O-O-O";
                     break;
                 }
                 if (capturedPiece == null) {
@@ -117,16 +122,20 @@ public class AlgebraicNotationUtils {
             }
         }
 
-        if (!kinglessGame) {
-            System.out.println();
+        CheckState checkState;
+        if (kinglessGame) {
+            checkState = CheckState.NONE;
+        } else if (gameState != null) {
+            checkState = gameState.positionAnalysis.getCheckState(opponentTeam, board);
+        } else {
+            checkState = Rules.getCheckState(opponentTeam, board);
         }
-
-        if (Rules.isCheckmate(opponentTeam, board) && !kinglessGame) {
+        if (checkState == CheckState.CHECKMATE) {
             algebraicNotationMove += "#";
             return algebraicNotationMove;
         }
 
-        if (Rules.isKingInCheck(opponentTeam, board) && !kinglessGame) {
+        if (checkState == CheckState.CHECK) {
             algebraicNotationMove += "+";
         }
 
@@ -157,31 +166,17 @@ public class AlgebraicNotationUtils {
 
         if (movedPiece.type != pieceType) return normalMove;
 
-        int otherPieceIndex = -1;
-        for (int i = 0; i < board.pieces.length; i++) {
-            Piece piece = board.pieces[i];
-            if (piece == null) continue;
-            if (piece.type == pieceType && piece.team == movedPiece.team && i != board.getArrayIndexFromLocation(to)) {
-                otherPieceIndex = i;
-                break;
-            }
-        }
-        if (otherPieceIndex < 0) return normalMove;
-        Piece otherPiece = board.pieces[otherPieceIndex];
-
-        List<Move> otherPiecePseudoLegalMoves = Rules.getPseudoLegalMoves(board.getPointFromArrayIndex(otherPieceIndex), otherPiece, board);
-
-        Board oldBoard = new Board(board);
-        oldBoard.movePiece(new Move(to, from, movedPiece));
-        List<Move> otherPieceLegalMoves = Rules.getValidMoves(oldBoard.getPointFromArrayIndex(otherPieceIndex), otherPiece, oldBoard, true);
-        boolean isDisambiguationNeeded = otherPieceLegalMoves.stream().anyMatch(streamMove -> streamMove.getTo().equals(to));
+        // The moved piece is already on the destination square, any other piece of the same type could have moved there as well
+        long otherPieces = board.bitboard.getBitboard(movedPiece.team, pieceType) & ~Bitboard.getSquareBitboard(board.getArrayIndexFromLocation(to));
+        if (otherPieces == 0) return normalMove;
+        int otherPieceIndex = Long.numberOfTrailingZeros(otherPieces);
 
-        if (!isDisambiguationNeeded) {
-            return normalMove;
-        }
+        // The position before the move, only the moved piece is put back, the captured piece doesn't change which pieces can reach the square
+        Position oldPosition = new Position(board);
+        oldPosition.makeMove(PackedMove.encode(board.getArrayIndexFromLocation(to), board.getArrayIndexFromLocation(from)));
+        boolean isDisambiguationNeeded = oldPosition.isLegalPieceMove(otherPieceIndex, board.getArrayIndexFromLocation(to));
 
-        if (otherPiecePseudoLegalMoves.stream()
-                .anyMatch(streamMove -> streamMove.getTo().equals(to))) {
+        if (isDisambiguationNeeded) {
             var otherPiecePoint = board.getPointFromArrayIndex(otherPieceIndex);
             var fromAlgebraicNotation = from.getAlgebraicNotationLocation();
             var toAlgebraicNotation = to.getAlgebraicNotationLocation();
@@ -220,17 +215,17 @@ public class AlgebraicNotationUtils {
     public Move getMoveFromParsedMove(String parsedMove) {
         // TODO: Make this method more readable
 
-        var playerTeam = GameState.currentTurn;
+        var playerTeam = gameState.currentTurn;
         if (parsedMove.equals("O-O") || parsedMove.equals("0-0")) {
-            var from = new BoardLocation(4, playerTeam == Team.WHITE ? 0 : 7);
-            var to = new BoardLocation(6, playerTeam == Team.WHITE ? 0 : 7);
+            var from = BoardLocation.of(4, playerTeam == Team.WHITE ? 0 : 7);
+            var to = BoardLocation.of(6, playerTeam == Team.WHITE ? 0 : 7);
             var piece = board.getPiece(from);
             var move = new Move(from, to, piece, null);
             move.setMoveFlag(MoveFlag.kingsideCastling);
             return move;
         } else if (parsedMove.equals("O-O-O") || parsedMove.equals("0-0-0")) {
-            var from = new BoardLocation(4, playerTeam == Team.WHITE ? 0 : 7);
-            var to = new BoardLocation(2, playerTeam == Team.WHITE ? 0 : 7);
+            var from = BoardLocation.of(4, playerTeam == Team.WHITE ? 0 : 7);
+            var to = BoardLocation.of(2, playerTeam == Team.WHITE ? 0 : 7);
             var piece = board.getPiece(from);
             var move = new Move(from, to, piece, null);
             move.setMoveFlag(MoveFlag.queensideCastling);
@@ -274,16 +269,19 @@ public class AlgebraicNotationUtils {
             movedPieceType = new FenUtils(board.pieces)
                     .getPieceTypeFromSymbol()
                     .get(Character.toLowerCase(parsedMove.charAt(0)));
-            var piece = new Piece(playerTeam, movedPieceType);
-
-            var allMoves = Rules.getPseudoLegalMoves(to, piece, board);
-            if (!allMoves.isEmpty()) {
-                List<Move> possibleMoves = new ArrayList<>();
-                for (Move move : allMoves) {
-                    if (move.getFrom().equals(to) && move.getCapturedPiece() != null && move.getCapturedPiece().type == movedPieceType && move.getCapturedPiece().team == playerTeam) {
-                        possibleMoves.add(new Move(move.getTo(), move.getFrom(), piece, board.getPiece(to)));
-                    }
-                }
+            var piece = Piece.of(playerTeam, movedPieceType);
+
+            // Attacks are symmetric, so the pieces that can move to the square are the ones it attacks as the same piece
+            int toIndex = board.getArrayIndexFromLocation(to);
+            long candidates = Rules.getPieceAttacks(movedPieceType, toIndex, board.bitboard.getOccupied()) & board.bitboard.getBitboard(playerTeam, movedPieceType);
+            List<Move> possibleMoves = new ArrayList<>();
+            while (candidates != 0) {
+                int fromIndex = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                Move move = new Move(board.getPointFromArrayIndex(fromIndex), to, piece, board.getPiece(to));
+                if (Rules.isLegal(board, move)) possibleMoves.add(move);
+            }
+            if (!possibleMoves.isEmpty()) {
                 if (possibleMoves.size() == 1) {
                     return possibleMoves.get(0);
                 } else {
@@ -343,10 +341,11 @@ public class AlgebraicNotationUtils {
         if (isEnPassant) {
             BoardLocation pawnLocation = null;
             pawnLocation = getEnPassantLocation(to, playerTeam, pawnLocation);
+            if (pawnLocation == null) return null;
 
-            var moves = Rules.addLegalEnPassant(playerTeam, board, to, pawnLocation, new BoardLocation(to.getX(), to.getY() - 1), true);
-            if (!moves.isEmpty()) {
-                return moves.get(0);
+            var move = new Move(pawnLocation, to, board.getPiece(pawnLocation), board.getPiece(BoardLocation.of(to.getX(), pawnLocation.getY())));
+            if (Rules.isLegal(board, move)) {
+                return move;
             }
         }
         return null;
@@ -447,6 +446,6 @@ public class AlgebraicNotationUtils {
             throw new IllegalArgumentException("Invalid algebraic notation: " + square);
         }
 
-        return new BoardLocation(file - 'a', rank);
+        return BoardLocation.of(file - 'a', rank);
     }
 }
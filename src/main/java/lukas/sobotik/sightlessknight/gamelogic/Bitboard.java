@@ -0,0 +1,161 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Bitboard representation of the pieces on the board.
+ * Every square is represented by one bit of a long, using the same indexing as the {@link Board#pieces} array
+ * (a1 = 0, b1 = 1, ..., h8 = 63), so that both representations can be used interchangeably.
+ */
+public class Bitboard {
+    private static final int PIECE_TYPES = PieceType.values().length;
+
+    private final long[] pieceBitboards;
+    private final long[] teamBitboards;
+    private long occupied;
+
+    /**
+     * Creates an empty bitboard.
+     */
+    public Bitboard() {
+        pieceBitboards = new long[Team.values().length * PIECE_TYPES];
+        teamBitboards = new long[Team.values().length];
+        occupied = 0L;
+    }
+
+    /**
+     * Creates a bitboard from the given array of pieces.
+     *
+     * @param pieces the array of pieces representing the chess board
+     */
+    public Bitboard(Piece[] pieces) {
+        this();
+        for (int square = 0; square < pieces.length; square++) {
+            Piece piece = pieces[square];
+            if (piece != null) {
+                addPiece(square, piece.team, piece.type);
+            }
+        }
+    }
+
+    /**
+     * Copy constructor for the Bitboard class.
+     *
+     * @param copyBitboard the Bitboard object to be copied
+     */
+    public Bitboard(Bitboard copyBitboard) {
+        this.pieceBitboards = copyBitboard.pieceBitboards.clone();
+        this.teamBitboards = copyBitboard.teamBitboards.clone();
+        this.occupied = copyBitboard.occupied;
+    }
+
+    /**
+     * Adds a piece to the given square.
+     *
+     * @param square the index of the square (0-63)
+     * @param team the team of the piece
+     * @param type the type of the piece
+     */
+    public void addPiece(int square, Team team, PieceType type) {
+        long mask = 1L << square;
+        pieceBitboards[getBitboardIndex(team, type)] |= mask;
+        teamBitboards[team.ordinal()] |= mask;
+        occupied |= mask;
+    }
+
+    /**
+     * Removes a piece from the given square.
+     *
+     * @param square the index of the square (0-63)
+     * @param team the team of the piece
+     * @param type the type of the piece
+     */
+    public void removePiece(int square, Team team, PieceType type) {
+        long mask = ~(1L << square);
+        pieceBitboards[getBitboardIndex(team, type)] &= mask;
+        teamBitboards[team.ordinal()] &= mask;
+        occupied &= mask;
+    }
+
+    /**
+     * Returns the bitboard of all pieces of the given team and type.
+     *
+     * @param team the team of the pieces
+     * @param type the type of the pieces
+     * @return the bitboard of the pieces
+     */
+    public long getBitboard(Team team, PieceType type) {
+        return pieceBitboards[getBitboardIndex(team, type)];
+    }
+
+    /**
+     * Returns the bitboard of all pieces of the given team.
+     *
+     * @param team the team of the pieces
+     * @return the bitboard of the team's pieces
+     */
+    public long getTeamBitboard(Team team) {
+        return teamBitboards[team.ordinal()];
+    }
+
+    /**
+     * Returns the bitboard of all occupied squares.
+     *
+     * @return the occupancy bitboard
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Returns the bitboard of all empty squares.
+     *
+     * @return the bitboard of the empty squares
+     */
+    public long getEmpty() {
+        return ~occupied;
+    }
+
+    /**
+     * Returns the index of the piece bitboard for the given team and piece type.
+     *
+     * @param team the team of the piece
+     * @param type the type of the piece
+     * @return the index of the bitboard (0-11)
+     */
+    public static int getBitboardIndex(Team team, PieceType type) {
+        return team.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    /**
+     * Returns a bitboard with only the given square set.
+     *
+     * @param square the index of the square (0-63)
+     * @return the bitboard of the square
+     */
+    public static long getSquareBitboard(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Prints the occupancy of the board in the console.
+     */
+    public void printBitboard() {
+        printBitboard(occupied);
+    }
+
+    /**
+     * Prints the given bitboard in the console, with the 8th rank at the top.
+     *
+     * @param bitboard the bitboard to print
+     */
+    public static void printBitboard(long bitboard) {
+        for (int rank = 7; rank >= 0; rank--) {
+            for (int file = 0; file < 8; file++) {
+                System.out.print(((bitboard >>> (rank * 8 + file)) & 1L) == 1L ? "1 " : ". ");
+            }
+            System.out.println();
+        }
+    }
+}
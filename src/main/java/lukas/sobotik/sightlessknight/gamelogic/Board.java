@@ -4,24 +4,43 @@ import lukas.sobotik.sightlessknight.gamelogic.entity.MoveFlag;
 import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 
+import java.util.Arrays;
+
 public class Board {
+    public static final int WHITE_KINGSIDE_CASTLING = 1;
+    public static final int WHITE_QUEENSIDE_CASTLING = 2;
+    public static final int BLACK_KINGSIDE_CASTLING = 4;
+    public static final int BLACK_QUEENSIDE_CASTLING = 8;
+
+    /**
+     * Castling rights that are kept when a piece moves from or to the square, only the corners and the starting squares of the kings clear any.
+     */
+    static final int[] CASTLING_RIGHTS_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_RIGHTS_KEPT, 0b1111);
+        CASTLING_RIGHTS_KEPT[0] = ~WHITE_QUEENSIDE_CASTLING & 0b1111;
+        CASTLING_RIGHTS_KEPT[7] = ~WHITE_KINGSIDE_CASTLING & 0b1111;
+        CASTLING_RIGHTS_KEPT[4] = ~(WHITE_KINGSIDE_CASTLING | WHITE_QUEENSIDE_CASTLING) & 0b1111;
+        CASTLING_RIGHTS_KEPT[56] = ~BLACK_QUEENSIDE_CASTLING & 0b1111;
+        CASTLING_RIGHTS_KEPT[63] = ~BLACK_KINGSIDE_CASTLING & 0b1111;
+        CASTLING_RIGHTS_KEPT[60] = ~(BLACK_KINGSIDE_CASTLING | BLACK_QUEENSIDE_CASTLING) & 0b1111;
+    }
+
     public Piece[] pieces;
+    public Bitboard bitboard;
     int size;
     int squareSize;
     BoardLocation whiteKingLocation;
     BoardLocation blackKingLocation;
     FenUtils fenUtils;
 
-    Piece lastRemovedPiece, lastMovedPiece;
-    BoardLocation lastFromLocation, lastToLocation;
-    BoardLocation lastDoublePawnMoveWithWhitePieces, lastDoublePawnMoveWithBlackPieces;
-
-    public MoveHistoryStack whiteKingMoves = new MoveHistoryStack(false);
-    public MoveHistoryStack whiteKingRookMoves = new MoveHistoryStack(false);
-    public MoveHistoryStack whiteQueenRookMoves = new MoveHistoryStack(false);
-    public MoveHistoryStack blackKingMoves = new MoveHistoryStack(false);
-    public MoveHistoryStack blackKingRookMoves = new MoveHistoryStack(false);
-    public MoveHistoryStack blackQueenRookMoves = new MoveHistoryStack(false);
+    int castlingRights;
+    int enPassantSquare = -1;
+    int halfmoveClock = 0;
+    long zobristKey;
+    Team sideToMove;
+    BoardStateStack stateStack;
 
     /**
      * Initializes a new instance of the Board class.
@@ -32,13 +51,20 @@ public class Board {
     public Board(int size, Piece[] pieces, FenUtils fenUtils) {
         this.size = size;
         this.pieces = pieces;
+        this.bitboard = new Bitboard(pieces);
         this.fenUtils = fenUtils;
         squareSize = size / 8;
+        stateStack = new BoardStateStack();
 
         whiteKingLocation = getPointFromArrayIndex(fenUtils.getWhiteKingIndex());
         blackKingLocation = getPointFromArrayIndex(fenUtils.getBlackKingIndex());
         fenUtils.whiteKingPosition = whiteKingLocation;
         fenUtils.blackKingPosition = blackKingLocation;
+
+        sideToMove = fenUtils.getStartingTeam() == Team.BLACK ? Team.BLACK : Team.WHITE;
+        castlingRights = getCastlingRightsFromPosition();
+        enPassantSquare = getEnPassantSquareFromPosition();
+        zobristKey = computeZobristKey();
     }
 
     /**
@@ -51,28 +77,43 @@ public class Board {
         this.size = copyBoard.size;
         this.squareSize = copyBoard.squareSize;
         this.fenUtils = copyBoard.fenUtils; // Assuming fenUtils doesn't need to be deep copied
-        this.whiteKingLocation = new BoardLocation(copyBoard.whiteKingLocation);
-        this.blackKingLocation = new BoardLocation(copyBoard.blackKingLocation);
-        this.lastRemovedPiece = copyBoard.lastRemovedPiece != null ? new Piece(copyBoard.lastRemovedPiece) : null;
-        this.lastMovedPiece = copyBoard.lastMovedPiece != null ? new Piece(copyBoard.lastMovedPiece) : null;
-        this.lastFromLocation = copyBoard.lastFromLocation != null ? new BoardLocation(copyBoard.lastFromLocation) : null;
-        this.lastToLocation = copyBoard.lastToLocation != null ? new BoardLocation(copyBoard.lastToLocation) : null;
-        this.lastDoublePawnMoveWithWhitePieces = copyBoard.lastDoublePawnMoveWithWhitePieces != null ? new BoardLocation(copyBoard.lastDoublePawnMoveWithWhitePieces) : null;
-        this.lastDoublePawnMoveWithBlackPieces = copyBoard.lastDoublePawnMoveWithBlackPieces != null ? new BoardLocation(copyBoard.lastDoublePawnMoveWithBlackPieces) : null;
-        this.whiteKingMoves = new MoveHistoryStack(copyBoard.whiteKingMoves);
-        this.whiteKingRookMoves = new MoveHistoryStack(copyBoard.whiteKingRookMoves);
-        this.whiteQueenRookMoves = new MoveHistoryStack(copyBoard.whiteQueenRookMoves);
-        this.blackKingMoves = new MoveHistoryStack(copyBoard.blackKingMoves);
-        this.blackKingRookMoves = new MoveHistoryStack(copyBoard.blackKingRookMoves);
-        this.blackQueenRookMoves = new MoveHistoryStack(copyBoard.blackQueenRookMoves);
-
-        // Deep copy of pieces array
-        this.pieces = new Piece[copyBoard.pieces.length];
-        for (int i = 0; i < copyBoard.pieces.length; i++) {
-            if (copyBoard.pieces[i] != null) {
-                this.pieces[i] = new Piece(copyBoard.pieces[i]);
-            }
-        }
+        this.whiteKingLocation = copyBoard.whiteKingLocation;
+        this.blackKingLocation = copyBoard.blackKingLocation;
+        this.castlingRights = copyBoard.castlingRights;
+        this.enPassantSquare = copyBoard.enPassantSquare;
+        this.halfmoveClock = copyBoard.halfmoveClock;
+        this.stateStack = new BoardStateStack(copyBoard.stateStack);
+
+        // Pieces are immutable, so copying the array is enough
+        this.pieces = copyBoard.pieces.clone();
+        this.bitboard = new Bitboard(copyBoard.bitboard);
+
+        this.zobristKey = copyBoard.zobristKey;
+        this.sideToMove = copyBoard.sideToMove;
+    }
+
+    /**
+     * Creates a board with the position of a snapshot, used e.g. by workers that get a {@link Position} instead of a board.
+     * The board has no move history, so only the moves played on it can be undone.
+     *
+     * @param layoutBoard the board whose size and FEN utilities are used
+     * @param position the position of the new board
+     */
+    public Board(Board layoutBoard, Position position) {
+        this.size = layoutBoard.size;
+        this.squareSize = layoutBoard.squareSize;
+        this.fenUtils = layoutBoard.fenUtils;
+        this.pieces = position.getPieces();
+        this.bitboard = new Bitboard(pieces);
+        this.whiteKingLocation = getPointFromArrayIndex(getKingIndex(position, Team.WHITE));
+        this.blackKingLocation = getPointFromArrayIndex(getKingIndex(position, Team.BLACK));
+        this.castlingRights = position.getCastlingRights();
+        this.enPassantSquare = position.getEnPassantSquare();
+        this.halfmoveClock = position.getHalfmoveClock();
+        this.stateStack = new BoardStateStack(BoardStateStack.MIN_COPY_CAPACITY);
+
+        this.zobristKey = position.getZobristKey();
+        this.sideToMove = position.getSideToMove();
     }
 
     /**
@@ -81,7 +122,15 @@ public class Board {
      */
     public void resetBoardPosition(String startPosition) {
         pieces = fenUtils.generatePositionFromFEN(startPosition);
-        GameState.currentTurn = fenUtils.getStartingTeam();
+        bitboard = new Bitboard(pieces);
+        whiteKingLocation = getPointFromArrayIndex(fenUtils.getWhiteKingIndex());
+        blackKingLocation = getPointFromArrayIndex(fenUtils.getBlackKingIndex());
+        sideToMove = fenUtils.getStartingTeam() == Team.BLACK ? Team.BLACK : Team.WHITE;
+        castlingRights = getCastlingRightsFromPosition();
+        enPassantSquare = getEnPassantSquareFromPosition();
+        halfmoveClock = 0;
+        stateStack.clear();
+        zobristKey = computeZobristKey();
 
         System.out.println(fenUtils.generateFenFromPosition(fenUtils.pieces));
         printBoardInConsole(false);
@@ -172,8 +221,23 @@ public class Board {
         return pieces[boardLocation.getX() + boardLocation.getY() * 8];
     }
 
+    /**
+     * Returns the piece on the square with the specified index.
+     *
+     * @param square the index of the square (0-63)
+     * @return the piece on the square, or null if the square is empty or out of bounds
+     */
+    public Piece getPiece(int square) {
+        if (!isInBounds(square)) {
+            return null;
+        }
+        return pieces[square];
+    }
+
     /**
      * Moves a piece on the board based on the provided move.
+     * The state that can't be recomputed is pushed on the state stack first, so that {@link #undoMove(Move)} can restore it.
+     * The castling rights, en passant square, halfmove clock and Zobrist key are then updated incrementally.
      *
      * @param move the move object containing the from and to locations
      */
@@ -181,6 +245,22 @@ public class Board {
         var from = move.getFrom();
         var to = move.getTo();
         if (from == null || to == null) return;
+
+        int fromIndex = getArrayIndexFromLocation(from);
+        int toIndex = getArrayIndexFromLocation(to);
+        stateStack.push(fromIndex, toIndex, getPiece(fromIndex), getPiece(toIndex), castlingRights, enPassantSquare, halfmoveClock, zobristKey);
+        movePieceAndHandleSpecialMoves(move);
+        updateIrreversibleStateAfterMove(fromIndex, toIndex);
+    }
+
+    /**
+     * Moves a piece on the board and handles castling, en passant and promotions, without updating the irreversible state.
+     *
+     * @param move the move object containing the from and to locations
+     */
+    private void movePieceAndHandleSpecialMoves(Move move) {
+        var from = move.getFrom();
+        var to = move.getTo();
         movePieceWithoutSpecialMoves(move);
 
         Piece movedPiece;
@@ -191,54 +271,75 @@ public class Board {
         }
         if (movedPiece == null) return;
 
-        addMovedPieceListItemForCastling(move);
-        lastMovedPiece = movedPiece.toBuilder()
-                .build();
-
         handleCastling(move, movedPiece);
 
-        // Save the last move that was a double pawn move
-        saveDoublePawnMove(from, to, movedPiece);
-
-        // Handle en passant capture
-        BoardLocation enPassantCapture = new BoardLocation(to.getX(), from.getY());
-        if (getPiece(enPassantCapture) != null
-                && getPiece(enPassantCapture).type == PieceType.PAWN
-                && getPiece(enPassantCapture).team != movedPiece.team
-                && movedPiece.type == PieceType.PAWN
+        // Handle en passant capture, the en passant square still belongs to the position before the move
+        BoardLocation enPassantCapture = BoardLocation.of(to.getX(), from.getY());
+        if (movedPiece.type == PieceType.PAWN
                 && from.getX() != to.getX()
-                && (getPiece(enPassantCapture).doublePawnMoveOnMoveNumber == GameState.moveNumber - 1)) {
-            movedPiece.enPassant = true;
+                && getArrayIndexFromLocation(to) == enPassantSquare
+                && getPiece(enPassantCapture) != null
+                && getPiece(enPassantCapture).type == PieceType.PAWN
+                && getPiece(enPassantCapture).team != movedPiece.team) {
+            stateStack.setCapturedPiece(getPiece(enPassantCapture), getArrayIndexFromLocation(enPassantCapture));
             removePiece(enPassantCapture);
-            GameState.enPassantCaptures++;
         }
+    }
 
-        // Check for promotion moves
-        if ((to.getY() == 7 || to.getY() == 0) && movedPiece.type.equals(PieceType.PAWN)) {
-            GameState.promotionLocation = to;
-            GameState.isPawnPromotionPending = true;
+    /**
+     * Updates the castling rights, en passant square, halfmove clock, side to move and the Zobrist key after a move.
+     * The Zobrist keys of the pieces are already updated by {@link #setPiece(int, Piece)}.
+     *
+     * @param from index of the square the piece moved from (0-63)
+     * @param to index of the square the piece moved to (0-63)
+     */
+    private void updateIrreversibleStateAfterMove(int from, int to) {
+        Piece movedPiece = getPiece(to);
+        boolean isPawnMove = movedPiece != null && movedPiece.type == PieceType.PAWN;
+        halfmoveClock = (isPawnMove || stateStack.getCapturedPiece() != null) ? 0 : halfmoveClock + 1;
+
+        int newCastlingRights = castlingRights & CASTLING_RIGHTS_KEPT[from] & CASTLING_RIGHTS_KEPT[to];
+        zobristKey ^= Zobrist.getCastlingKey(castlingRights) ^ Zobrist.getCastlingKey(newCastlingRights);
+        castlingRights = newCastlingRights;
+
+        int newEnPassantSquare = -1;
+        if (isPawnMove
+                && Math.abs(from - to) == 16
+                && isEnemyPawnNextTo(getPointFromArrayIndex(to), movedPiece.team)) {
+            newEnPassantSquare = (from + to) / 2;
         }
+        zobristKey ^= Zobrist.getEnPassantKey(getFile(enPassantSquare)) ^ Zobrist.getEnPassantKey(getFile(newEnPassantSquare));
+        enPassantSquare = newEnPassantSquare;
 
-        movedPiece.hasMoved = true;
+        zobristKey ^= Zobrist.getSideToMoveKey();
+        sideToMove = (sideToMove == Team.WHITE) ? Team.BLACK : Team.WHITE;
+    }
 
-        lastFromLocation = from;
-        lastToLocation = to;
+    /**
+     * Moves a piece on the board based on the provided packed move.
+     *
+     * @param packedMove the move packed by {@link PackedMove}
+     * @return the move object that was played, the move can be undone with {@link #undoMove(int)}
+     */
+    public Move movePiece(int packedMove) {
+        Move move = PackedMove.toMove(packedMove, this);
+        movePiece(move);
+        return move;
     }
 
     /**
-     * Saves the last move that was a double pawn move.
+     * Undoes a packed move on the chessboard.
+     * The move has to be the last move played on this board, its exact prior state is restored from the state stack
+     * (see {@link #undoLastMove()}).
      *
-     * @param from the starting location of the move
-     * @param to the destination location of the move
-     * @param movedPiece the piece that was moved
+     * @param packedMove the move packed by {@link PackedMove}
+     * @throws IllegalArgumentException if the move is not the last move played on this board
      */
-    private void saveDoublePawnMove(BoardLocation from, BoardLocation to, Piece movedPiece) {
-        if (movedPiece == null) return;
-        if (movedPiece.type == PieceType.PAWN && Math.abs(from.getY() - to.getY()) == 2) {
-            if (movedPiece.team == Team.WHITE) lastDoublePawnMoveWithWhitePieces = to;
-            if (movedPiece.team == Team.BLACK) lastDoublePawnMoveWithBlackPieces = to;
-            movedPiece.doublePawnMoveOnMoveNumber = GameState.moveNumber;
+    public void undoMove(int packedMove) {
+        if (!isLastMove(PackedMove.getFrom(packedMove), PackedMove.getTo(packedMove))) {
+            throw new IllegalArgumentException("The move is not the last move played on the board: " + packedMove);
         }
+        undoLastMove();
     }
 
     /**
@@ -258,16 +359,7 @@ public class Board {
      *             as well as the piece being moved
      */
     public void movePieceWithoutSpecialMovesAndSave(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
-        var movedPiece = getPiece(from);
         movePieceWithoutSpecialMoves(move);
-
-        // Save the last move that was a double pawn move
-        saveDoublePawnMove(from, to, movedPiece);
-
-        lastFromLocation = from;
-        lastToLocation = to;
     }
 
     /**
@@ -281,92 +373,20 @@ public class Board {
         if (move.getMoveFlag().equals(MoveFlag.queensideCastling)) {
             movePieceWithoutSpecialMovesAndSave(
                     movedPiece.team == Team.WHITE
-                    ? new BoardLocation(0, 0) // White Rook From
-                    : new BoardLocation(0, 7), // Black Rook From
+                    ? BoardLocation.of(0, 0) // White Rook From
+                    : BoardLocation.of(0, 7), // Black Rook From
                     movedPiece.team == Team.WHITE
-                    ? new BoardLocation(3, 0) // White Rook To
-                    : new BoardLocation(3, 7)); // Black Rook To
-            movedPiece.setCastling("O-O-O");
+                    ? BoardLocation.of(3, 0) // White Rook To
+                    : BoardLocation.of(3, 7)); // Black Rook To
         } // Kingside Castling
         else if (move.getMoveFlag().equals(MoveFlag.kingsideCastling)) {
             movePieceWithoutSpecialMovesAndSave(
                     movedPiece.team == Team.WHITE
-                    ? new BoardLocation(7, 0) // White Rook From
-                    : new BoardLocation(7, 7), // Black Rook From
+                    ? BoardLocation.of(7, 0) // White Rook From
+                    : BoardLocation.of(7, 7), // Black Rook From
                     movedPiece.team == Team.WHITE
-                    ? new BoardLocation(5, 0) // White Rook To
-                    : new BoardLocation(5, 7)); //Black Rook To
-            movedPiece.setCastling("O-O");
-        }
-    }
-
-    /**
-     * Adds the moved piece to the respective list for tracking castling moves.
-     *
-     * @param move the move object representing the castling move
-     */
-    private void addMovedPieceListItemForCastling(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
-        var movedPiece = move.getMovedPiece();
-        if (movedPiece == null) return;
-
-        if (movedPiece.type == PieceType.KING) {
-            if (movedPiece.team == Team.WHITE) {
-                whiteKingMoves.setValue(movedPiece.hasMoved);
-            } else {
-                blackKingMoves.setValue(movedPiece.hasMoved);
-            }
-        }
-        if (movedPiece.type == PieceType.ROOK) {
-            if (movedPiece.team == Team.WHITE) {
-                if (from.getX() == 0) {
-                    whiteQueenRookMoves.setValue(movedPiece.hasMoved);
-                } else if (from.getX() == 7) {
-                    whiteKingRookMoves.setValue(movedPiece.hasMoved);
-                }
-            } else {
-                if (from.getX() == 0) {
-                    blackQueenRookMoves.setValue(movedPiece.hasMoved);
-                } else if (from.getX() == 7) {
-                    blackKingRookMoves.setValue(movedPiece.hasMoved);
-                }
-            }
-        }
-    }
-
-    /**
-     * Removes the moved piece from the respective list for tracking castling moves.
-     *
-     * @param move the move object representing the castling move
-     */
-    private void removeMovedPieceListItemForCastling(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
-        var movedPiece = move.getMovedPiece();
-        if (movedPiece == null) return;
-
-        if (movedPiece.type == PieceType.KING) {
-            if (movedPiece.team == Team.WHITE) {
-                whiteKingMoves.goBack();
-            } else if (movedPiece.team == Team.BLACK) {
-                blackKingMoves.goBack();
-            }
-        }
-        if (movedPiece.type == PieceType.ROOK) {
-            if (movedPiece.team == Team.WHITE) {
-                if (from.getX() == 0) {
-                    whiteQueenRookMoves.goBack();
-                } else if (from.getX() == 7) {
-                    whiteKingRookMoves.goBack();
-                }
-            } else {
-                if (from.getX() == 0) {
-                    blackQueenRookMoves.goBack();
-                } else if (from.getX() == 7) {
-                    blackKingRookMoves.goBack();
-                }
-            }
+                    ? BoardLocation.of(5, 0) // White Rook To
+                    : BoardLocation.of(5, 7)); //Black Rook To
         }
     }
 
@@ -385,15 +405,7 @@ public class Board {
             blackKingLocation = to;
         }
 
-        if (move.getCapturedPiece() != null) {
-            lastRemovedPiece = move.getCapturedPiece();
-        } else if (pieces[to.getX() + to.getY() * 8] != null) {
-            lastRemovedPiece = pieces[to.getX() + to.getY() * 8];
-        } else {
-            lastRemovedPiece = null;
-        }
-
-        pieces[getArrayIndexFromLocation(to)] = pieces[getArrayIndexFromLocation(from)];
+        setPiece(getArrayIndexFromLocation(to), pieces[getArrayIndexFromLocation(from)]);
         removePiece(from);
     }
 
@@ -406,129 +418,247 @@ public class Board {
         if (!isInBounds(boardLocation)) {
             return;
         }
-        int index = getArrayIndexFromLocation(boardLocation);
-        pieces[index] = null;
+        setPiece(getArrayIndexFromLocation(boardLocation), null);
+    }
+
+    /**
+     * Places a piece on the square with the given index, replacing any piece that was there before.
+     * This is the only place where the pieces array is modified, so that the bitboard representation stays in sync.
+     *
+     * @param index the array index of the square
+     * @param piece the piece to place on the square, or null to empty the square
+     */
+    void setPiece(int index, Piece piece) {
+        Piece oldPiece = pieces[index];
+        if (oldPiece != null) {
+            bitboard.removePiece(index, oldPiece.team, oldPiece.type);
+            zobristKey ^= Zobrist.getPieceKey(oldPiece.team, oldPiece.type, index);
+        }
+        pieces[index] = piece;
+        if (piece != null) {
+            bitboard.addPiece(index, piece.team, piece.type);
+            zobristKey ^= Zobrist.getPieceKey(piece.team, piece.type, index);
+        }
     }
 
     /**
      * Undoes the last move on the chessboard.
      * If there was no previous move, the method returns without doing anything.
-     * The method restores the piece that was previously removed and moves it back to its original location.
-     * The special move flags for the moved piece are not affected.
+     * The moved piece, the captured piece and the rook of a castling move are put back,
+     * and the castling rights, en passant square, halfmove clock and Zobrist key are restored from the state stack.
      */
     public void undoLastMove() {
-        if (lastFromLocation == null || lastToLocation == null) return;
-        Piece temp = lastRemovedPiece;
+        if (stateStack.isEmpty()) return;
+        int from = stateStack.getFrom();
+        int to = stateStack.getTo();
+        Piece movedPiece = stateStack.getMovedPiece();
+
+        if (movedPiece != null) {
+            // The original piece is put back, which also undoes a promotion
+            setPiece(to, null);
+            setPiece(from, movedPiece);
+
+            if (stateStack.getCapturedPiece() != null) {
+                setPiece(stateStack.getCapturedSquare(), stateStack.getCapturedPiece());
+            }
 
-        movePieceWithoutSpecialMovesAndSave(lastToLocation, lastFromLocation);
+            if (movedPiece.type == PieceType.KING) {
+                if (movedPiece.team == Team.WHITE) {
+                    whiteKingLocation = getPointFromArrayIndex(from);
+                } else {
+                    blackKingLocation = getPointFromArrayIndex(from);
+                }
+                // Move the rook back to the original position when castled
+                if (Math.abs(from - to) == 2) {
+                    int rookSquare = (from + to) / 2;
+                    int originalRookSquare = to > from ? from + 3 : from - 4;
+                    setPiece(originalRookSquare, pieces[rookSquare]);
+                    setPiece(rookSquare, null);
+                }
+            }
+        }
 
-        pieces[lastFromLocation.getX() + lastFromLocation.getY() * 8] = temp;
+        castlingRights = stateStack.getCastlingRights();
+        enPassantSquare = stateStack.getEnPassantSquare();
+        halfmoveClock = stateStack.getHalfmoveClock();
+        zobristKey = stateStack.getZobristKey();
+        sideToMove = (sideToMove == Team.WHITE) ? Team.BLACK : Team.WHITE;
+        stateStack.pop();
     }
 
     /**
      * Undoes a given move on the chessboard.
-     * If the move is null, the method returns without doing anything.
-     * The method restores the moved piece to its original location and restores any captured piece.
-     * If the move was a promotion, the original piece is restored instead of the promoted piece.
-     * If the move was a castling move, the rook is moved back to its original position.
-     * The special move flags for the moved piece are not affected.
+     * The move has to be the last move played on this board, its exact prior state is restored from the state stack
+     * (see {@link #undoLastMove()}).
      *
      * @param move the move to undo
+     * @throws IllegalArgumentException if the move is not the last move played on this board
      */
     public void undoMove(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
-        var movedPiece = move.getMovedPiece();
-        var capturedPiece = move.getCapturedPiece();
-        var moveFlag = move.getMoveFlag();
+        if (move.getFrom() == null || move.getTo() == null
+                || !isLastMove(getArrayIndexFromLocation(move.getFrom()), getArrayIndexFromLocation(move.getTo()))) {
+            throw new IllegalArgumentException("The move is not the last move played on the board: "
+                    + (move.getFrom() == null ? null : move.getFrom().getAlgebraicNotationLocation())
+                    + (move.getTo() == null ? null : move.getTo().getAlgebraicNotationLocation()));
+        }
+        undoLastMove();
+    }
 
-        movePieceWithoutSpecialMovesAndSave(to, from);
-        removeMovedPieceListItemForCastling(move);
+    /**
+     * Checks whether the last move played on this board went between the given squares.
+     *
+     * @param from index of the square the move started on (0-63)
+     * @param to index of the square the move went to (0-63)
+     * @return true if the top of the state stack is the move, false if it's another move or no move was played
+     */
+    private boolean isLastMove(int from, int to) {
+        return !stateStack.isEmpty() && stateStack.getFrom() == from && stateStack.getTo() == to;
+    }
 
-        if (pieces[getArrayIndexFromLocation(from)] != null) {
-            pieces[getArrayIndexFromLocation(from)].hasMoved = lastMovedPiece.hasMoved;
-        }
+    /**
+     * Returns the location the last move went to.
+     *
+     * @return the destination of the last move, or null if no move was played on this board
+     */
+    BoardLocation getLastToLocation() {
+        return stateStack.isEmpty() ? null : getPointFromArrayIndex(stateStack.getTo());
+    }
 
-        if (capturedPiece != null) {
-            int pieceIndex = getArrayIndexFromLocation(to);
-            // En Passant
-            if (moveFlag.equals(MoveFlag.enPassant)) {
-                pieceIndex = getArrayIndexFromLocation(to.transpose(0, (movedPiece.team == Team.WHITE ? -1 : 1)));
-                if (!isInBounds(to.transpose(0, (movedPiece.team == Team.WHITE ? -1 : 1)))) return;
-            }
-            pieces[pieceIndex] = capturedPiece;
-        }
+    /**
+     * Returns the 64-bit Zobrist key of the current position.
+     * The key covers the pieces, the side to move, the castling rights and the en passant file,
+     * so two positions with the same key can be treated as the same position.
+     *
+     * @return the Zobrist key of the current position
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
 
-        // Undo a promotion
-        if (move.getPromotionPiece() != null) {
-            pieces[getArrayIndexFromLocation(from)] = movedPiece;
-        }
+    /**
+     * Computes the Zobrist key of the current position from scratch.
+     * The key returned by {@link #getZobristKey()} is updated incrementally and should always be equal to this one.
+     *
+     * @return the Zobrist key of the current position
+     */
+    public long computeZobristKey() {
+        return Zobrist.computeKey(pieces, sideToMove, castlingRights, getFile(enPassantSquare));
+    }
 
-        // Move the rooks back to the original position when castled
-        if (move.getMovedPiece().type == PieceType.KING
-                && Math.abs(move.getFrom().getX() - move.getTo().getX()) == 2) {
-            var team = move.getMovedPiece().team;
-            var kingLocation = team == Team.WHITE ? new BoardLocation(4, 0) : new BoardLocation(4, 7);
-            // Kingside Castling
-            if (move.getTo().getX() > move.getFrom().getX()) {
-                var rookLocation = team == Team.WHITE ? new BoardLocation(5, 0) : new BoardLocation(5, 7);
-                var originalRookLocation = team == Team.WHITE ? new BoardLocation(7, 0) : new BoardLocation(7, 7);
-                var castleMove = new Move(rookLocation, originalRookLocation, new Piece(team, PieceType.ROOK));
-                movePiece(castleMove);
-            }
-            // Queenside castling
-            else if (move.getTo().getX() < move.getFrom().getX()) {
-                var rookLocation = team == Team.WHITE ? new BoardLocation(3, 0) : new BoardLocation(3, 7);
-                var originalRookLocation = team == Team.WHITE ? new BoardLocation(0, 0) : new BoardLocation(0, 7);
-                var castleMove = new Move(rookLocation, originalRookLocation, new Piece(team, PieceType.ROOK));
-                movePiece(castleMove);
-            }
-        }
+    /**
+     * Returns the castling rights of both teams as a 4-bit mask.
+     *
+     * @return the castling rights, a combination of {@link #WHITE_KINGSIDE_CASTLING}, {@link #WHITE_QUEENSIDE_CASTLING},
+     * {@link #BLACK_KINGSIDE_CASTLING} and {@link #BLACK_QUEENSIDE_CASTLING}
+     */
+    public int getCastlingRights() {
+        return castlingRights;
     }
 
     /**
-     * Plays the en passant move on the chessboard.
-     * If the move is null, the method returns without doing anything.
-     * The method moves the moved piece without considering any special move flags.
-     * It also removes the captured piece on the location adjacent to the destination square.
+     * Returns the en passant square, the square behind a pawn that just moved two squares,
+     * if an enemy pawn is next to it.
      *
-     * @param move the en passant move to play
+     * @return index of the en passant square (0-63), or -1 if there is none
      */
-    public void playEnPassant(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
 
-        movePieceWithoutSpecialMoves(move);
-        removePiece(new BoardLocation(to.getX(), from.getY()));
+    /**
+     * Returns the number of halfmoves since the last capture or pawn move.
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
     }
 
     /**
-     * Undoes the en passant move on the chessboard.
-     * If the move is null, the method returns without doing anything.
-     * The method moves the moved piece back to its original position without considering any special move flags.
-     * It also restores the captured piece on the location adjacent to the destination square.
+     * Derives the castling rights from the castling availability of the parsed FEN,
+     * limited to the kings and rooks that are on their starting squares.
      *
-     * @param move the en passant move to undo
+     * @return the castling rights as a 4-bit mask
      */
-    public void undoEnPassant(Move move) {
-        var from = move.getFrom();
-        var to = move.getTo();
-        var enPassantCapture = new BoardLocation(to.getX(), from.getY());
+    private int getCastlingRightsFromPosition() {
+        return fenUtils.getCastlingRights() & Rules.getCastlingRightsFromPieces(pieces, whiteKingLocation, blackKingLocation);
+    }
+
+    /**
+     * Derives the en passant square from the en passant target square of the parsed FEN.
+     * Like after a move, the square is only kept if an enemy pawn is next to the pawn that moved two squares.
+     *
+     * @return index of the en passant square (0-63), or -1 if there is none
+     */
+    private int getEnPassantSquareFromPosition() {
+        int square = fenUtils.getEnPassantSquare();
+        if (!isInBounds(square) || (square / 8 != 2 && square / 8 != 5)) return -1;
+
+        // The pawn that moved two squares is in front of the en passant square
+        int pawnSquare = square / 8 == 2 ? square + 8 : square - 8;
+        Piece pawn = pieces[pawnSquare];
+        if (pawn == null || pawn.type != PieceType.PAWN || !isEnemyPawnNextTo(getPointFromArrayIndex(pawnSquare), pawn.team)) return -1;
+        return square;
+    }
+
+    /**
+     * Checks if the team has a king on the board, games on training boards can be played without kings.
+     *
+     * @param team the team to check
+     * @return true if the team has a king, false otherwise
+     */
+    public boolean hasKing(Team team) {
+        return bitboard.getBitboard(team, PieceType.KING) != 0;
+    }
 
-        movePieceWithoutSpecialMoves(new Move(to, from, getPiece(to), getPiece(from)));
-        pieces[getArrayIndexFromLocation(enPassantCapture)] = move.getCapturedPiece();
+    /**
+     * Returns the index of the king of a team in a position, 0 if the team has no king like {@link FenUtils} does.
+     */
+    private static int getKingIndex(Position position, Team team) {
+        long king = position.getBitboard(team, PieceType.KING);
+        return king == 0 ? 0 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the file of a square.
+     *
+     * @param square index of the square (0-63), or -1
+     * @return the file of the square (0-7), or -1 if the square is -1
+     */
+    private static int getFile(int square) {
+        return square < 0 ? -1 : square % 8;
+    }
+
+    /**
+     * Checks if there is an enemy pawn next to the given location, which could capture a pawn on it en passant.
+     * The en passant file is only part of the Zobrist key when such a pawn exists,
+     * so that positions that can't be told apart by the next move get the same key.
+     *
+     * @param location the location of the pawn that moved two squares
+     * @param team the team of the pawn that moved two squares
+     * @return true if an enemy pawn is next to the location, false otherwise
+     */
+    private boolean isEnemyPawnNextTo(BoardLocation location, Team team) {
+        for (int side = -1; side <= 1; side += 2) {
+            Piece piece = getPiece(location.transpose(side, 0));
+            if (piece != null && piece.type == PieceType.PAWN && piece.team != team) return true;
+        }
+        return false;
     }
 
     /**
      * Calculates the board location (x, y) from the given array index.
      *
+     * The locations on the board are interned, so no new object is allocated for them.
+     *
      * @param index the array index
      * @return the board location corresponding to the given index
      */
     public BoardLocation getPointFromArrayIndex(int index) {
-        int x = index % 8;
-        int y = index / 8;
-        return new BoardLocation(x, y);
+        if (isInBounds(index)) {
+            return BoardLocation.fromIndex(index);
+        }
+        return BoardLocation.of(index % 8, index / 8);
     }
 
     /**
@@ -551,8 +681,8 @@ public class Board {
         Team team;
         if (pawnLocation.getY() == 7) team = Team.WHITE;
         else team = Team.BLACK;
-        Piece piece = new Piece(team, selectedPiece);
-        pieces[pawnLocation.getX() + pawnLocation.getY() * 8] = piece;
+        Piece piece = Piece.of(team, selectedPiece);
+        setPiece(pawnLocation.getX() + pawnLocation.getY() * 8, piece);
     }
 
     /**
@@ -564,4 +694,14 @@ public class Board {
     public boolean isInBounds(BoardLocation boardLocation) {
         return boardLocation.getX() < 8 && boardLocation.getX() >= 0 && boardLocation.getY() < 8 && boardLocation.getY() >= 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if the square with the given index is within the bounds of the board.
+     *
+     * @param square the index of the square
+     * @return true if the square is within the bounds, false otherwise
+     */
+    public boolean isInBounds(int square) {
+        return square >= 0 && square < 64;
+    }
+}
@@ -1,8 +1,20 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
+/**
+ * Immutable location of a square on the board.
+ * The 64 locations on the board are interned, use {@link #fromIndex(int)} to get them without allocating a new object.
+ */
 public class BoardLocation {
-    private int x;
-    private int y;
+    private static final BoardLocation[] SQUARES = new BoardLocation[64];
+
+    static {
+        for (int index = 0; index < SQUARES.length; index++) {
+            SQUARES[index] = new BoardLocation(index % 8, index / 8);
+        }
+    }
+
+    private final int x;
+    private final int y;
 
     /**
      * Constructs a new BoardLocation object with the specified x and y coordinates.
@@ -16,6 +28,30 @@ public class BoardLocation {
         this.y = y;
     }
 
+    /**
+     * Returns the interned location of the square with the given index.
+     *
+     * @param index the index of the square (0-63), using the same indexing as the {@link Board#pieces} array
+     * @return the location of the square
+     */
+    public static BoardLocation fromIndex(int index) {
+        return SQUARES[index];
+    }
+
+    /**
+     * Returns the location with the given coordinates, which is the interned instance if it's on the board.
+     *
+     * @param x the x coordinate of the location
+     * @param y the y coordinate of the location
+     * @return the location with the given coordinates
+     */
+    public static BoardLocation of(int x, int y) {
+        if (x >= 0 && x < 8 && y >= 0 && y < 8) {
+            return SQUARES[x + y * 8];
+        }
+        return new BoardLocation(x, y);
+    }
+
     /**
      * Copy constructor for the BoardLocation class.
      * Creates a new BoardLocation object by copying the properties of the given BoardLocation object.
@@ -45,47 +81,51 @@ public class BoardLocation {
     }
 
     /**
-     * Returns the x coordinate of this BoardLocation object.
-     * @return the x coordinate of this BoardLocation object
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code of this BoardLocation object
      */
-    public int getX() {
-        return x;
+    @Override
+    public int hashCode() {
+        return x + y * 8;
     }
 
     /**
-     * Sets the x coordinate value of this BoardLocation object.
-     * @param x the value to be set as the new x coordinate
+     * Returns the index of the square in the {@link Board#pieces} array.
+     * Only meaningful for locations on the board.
+     *
+     * @return the index of the square (0-63)
      */
-    public void setX(int x) {
-        this.x = x;
+    public int getIndex() {
+        return x + y * 8;
     }
 
     /**
-     * Returns the y coordinate of this BoardLocation object.
-     * @return the y coordinate of this BoardLocation object
+     * Returns the x coordinate of this BoardLocation object.
+     * @return the x coordinate of this BoardLocation object
      */
-    public int getY() {
-        return y;
+    public int getX() {
+        return x;
     }
 
     /**
-     * Sets the y coordinate of this BoardLocation object.
-     * @param y the new value for the y coordinate
+     * Returns the y coordinate of this BoardLocation object.
+     * @return the y coordinate of this BoardLocation object
      */
-    public void setY(int y) {
-        this.y = y;
+    public int getY() {
+        return y;
     }
 
     /**
-     * Returns a new BoardLocation object that is the result of transposing the current BoardLocation object by the specified x and y values.
+     * Returns the BoardLocation object that is the result of transposing the current BoardLocation object by the specified x and y values.
      * The x and y values are added to the current coordinates of the BoardLocation object to determine the coordinates of the new BoardLocation object.
      *
      * @param x the value to be added to the x coordinate of the current BoardLocation object
      * @param y the value to be added to the y coordinate of the current BoardLocation object
-     * @return a new BoardLocation object that is the result of transposing the current BoardLocation object by the specified x and y values
+     * @return a BoardLocation object that is the result of transposing the current BoardLocation object by the specified x and y values
      */
     public BoardLocation transpose(int x, int y) {
-        return new BoardLocation(this.x + x, this.y + y);
+        return of(this.x + x, this.y + y);
     }
 
     /**
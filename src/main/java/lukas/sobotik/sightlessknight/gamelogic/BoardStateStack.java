@@ -0,0 +1,198 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import java.util.Arrays;
+
+/**
+ * Stack of the board state that can't be recomputed when a move is undone.
+ * Every move pushes one entry holding the moved and captured piece, the castling rights, the en passant square,
+ * the halfmove clock and the Zobrist key from before the move, so undoing it restores the exact prior state.
+ * The entries are stored in arrays allocated up front, so pushing and popping doesn't allocate.
+ */
+class BoardStateStack {
+    /**
+     * More than the number of plies in any realistic game or search.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * Smallest capacity of a copied stack or of the stack of a board created from a {@link Position},
+     * such a stack grows like any other stack when more moves are played on it.
+     */
+    static final int MIN_COPY_CAPACITY = 16;
+
+    private int[] fromSquares;
+    private int[] toSquares;
+    private Piece[] movedPieces;
+    private Piece[] capturedPieces;
+    private int[] capturedSquares;
+    private int[] castlingRights;
+    private int[] enPassantSquares;
+    private int[] halfmoveClocks;
+    private long[] zobristKeys;
+    private int size;
+
+    /**
+     * Creates an empty stack with the default capacity.
+     */
+    BoardStateStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty stack with the given capacity.
+     *
+     * @param capacity the number of entries the stack can hold before it has to grow
+     */
+    BoardStateStack(int capacity) {
+        fromSquares = new int[capacity];
+        toSquares = new int[capacity];
+        movedPieces = new Piece[capacity];
+        capturedPieces = new Piece[capacity];
+        capturedSquares = new int[capacity];
+        castlingRights = new int[capacity];
+        enPassantSquares = new int[capacity];
+        halfmoveClocks = new int[capacity];
+        zobristKeys = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Copy constructor for the BoardStateStack class.
+     * Only the entries on the stack are copied, not the whole capacity of the copied stack.
+     *
+     * @param copyStack The BoardStateStack object to be copied.
+     */
+    BoardStateStack(BoardStateStack copyStack) {
+        int capacity = Math.max(copyStack.size, MIN_COPY_CAPACITY);
+        fromSquares = Arrays.copyOf(copyStack.fromSquares, capacity);
+        toSquares = Arrays.copyOf(copyStack.toSquares, capacity);
+        movedPieces = Arrays.copyOf(copyStack.movedPieces, capacity);
+        capturedPieces = Arrays.copyOf(copyStack.capturedPieces, capacity);
+        capturedSquares = Arrays.copyOf(copyStack.capturedSquares, capacity);
+        castlingRights = Arrays.copyOf(copyStack.castlingRights, capacity);
+        enPassantSquares = Arrays.copyOf(copyStack.enPassantSquares, capacity);
+        halfmoveClocks = Arrays.copyOf(copyStack.halfmoveClocks, capacity);
+        zobristKeys = Arrays.copyOf(copyStack.zobristKeys, capacity);
+        size = copyStack.size;
+    }
+
+    /**
+     * Pushes the state of the board before a move.
+     *
+     * @param from index of the square the piece moves from (0-63)
+     * @param to index of the square the piece moves to (0-63)
+     * @param movedPiece the piece that moves, or null if there is no piece on the starting square
+     * @param capturedPiece the piece on the destination square, or null if it's empty
+     * @param castlingRights the castling rights before the move
+     * @param enPassantSquare the en passant square before the move, or -1 if there is none
+     * @param halfmoveClock the halfmove clock before the move
+     * @param zobristKey the Zobrist key before the move
+     */
+    void push(int from, int to, Piece movedPiece, Piece capturedPiece, int castlingRights, int enPassantSquare, int halfmoveClock, long zobristKey) {
+        if (size == fromSquares.length) {
+            grow();
+        }
+        fromSquares[size] = from;
+        toSquares[size] = to;
+        movedPieces[size] = movedPiece;
+        capturedPieces[size] = capturedPiece;
+        capturedSquares[size] = to;
+        this.castlingRights[size] = castlingRights;
+        enPassantSquares[size] = enPassantSquare;
+        halfmoveClocks[size] = halfmoveClock;
+        zobristKeys[size] = zobristKey;
+        size++;
+    }
+
+    /**
+     * Replaces the captured piece of the top entry, used when a piece is captured on another square than the destination (en passant).
+     *
+     * @param capturedPiece the captured piece
+     * @param capturedSquare index of the square the piece was captured on (0-63)
+     */
+    void setCapturedPiece(Piece capturedPiece, int capturedSquare) {
+        capturedPieces[size - 1] = capturedPiece;
+        capturedSquares[size - 1] = capturedSquare;
+    }
+
+    /**
+     * Removes the top entry, the getters then return the values of the entry below it.
+     */
+    void pop() {
+        size--;
+        movedPieces[size] = null;
+        capturedPieces[size] = null;
+    }
+
+    /**
+     * Removes all entries from the stack, keeping the underlying arrays.
+     */
+    void clear() {
+        Arrays.fill(movedPieces, 0, size, null);
+        Arrays.fill(capturedPieces, 0, size, null);
+        size = 0;
+    }
+
+    /*
+     * The getters below return the values of the top entry, which is the state before the last move.
+     */
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getFrom() {
+        return fromSquares[size - 1];
+    }
+
+    int getTo() {
+        return toSquares[size - 1];
+    }
+
+    Piece getMovedPiece() {
+        return movedPieces[size - 1];
+    }
+
+    Piece getCapturedPiece() {
+        return capturedPieces[size - 1];
+    }
+
+    int getCapturedSquare() {
+        return capturedSquares[size - 1];
+    }
+
+    int getCastlingRights() {
+        return castlingRights[size - 1];
+    }
+
+    int getEnPassantSquare() {
+        return enPassantSquares[size - 1];
+    }
+
+    int getHalfmoveClock() {
+        return halfmoveClocks[size - 1];
+    }
+
+    long getZobristKey() {
+        return zobristKeys[size - 1];
+    }
+
+    /**
+     * Doubles the capacity of the stack, only needed for games longer than the default capacity.
+     */
+    private void grow() {
+        int capacity = fromSquares.length * 2;
+        fromSquares = Arrays.copyOf(fromSquares, capacity);
+        toSquares = Arrays.copyOf(toSquares, capacity);
+        movedPieces = Arrays.copyOf(movedPieces, capacity);
+        capturedPieces = Arrays.copyOf(capturedPieces, capacity);
+        capturedSquares = Arrays.copyOf(capturedSquares, capacity);
+        castlingRights = Arrays.copyOf(castlingRights, capacity);
+        enPassantSquares = Arrays.copyOf(enPassantSquares, capacity);
+        halfmoveClocks = Arrays.copyOf(halfmoveClocks, capacity);
+        zobristKeys = Arrays.copyOf(zobristKeys, capacity);
+    }
+}
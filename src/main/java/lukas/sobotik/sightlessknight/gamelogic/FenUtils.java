@@ -1,6 +1,7 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
 import lombok.Getter;
+import lombok.Setter;
 import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 
@@ -15,10 +16,14 @@ public class FenUtils {
     @Getter
     int whiteKingIndex, blackKingIndex;
     BoardLocation lastFromMove;
-    BoardLocation lastDoublePawnMoveWithWhite;
-    BoardLocation lastDoublePawnMoveWithBlack;
     @Getter
     Team startingTeam;
+    @Getter
+    @Setter
+    int castlingRights = Board.WHITE_KINGSIDE_CASTLING | Board.WHITE_QUEENSIDE_CASTLING | Board.BLACK_KINGSIDE_CASTLING | Board.BLACK_QUEENSIDE_CASTLING;
+    @Getter
+    @Setter
+    int enPassantSquare = -1;
 
     /**
      * Constructs a new FenUtils object with the given parameters.
@@ -27,16 +32,12 @@ public class FenUtils {
      * @param whiteKingPosition the BoardLocation object representing the position of the white king
      * @param blackKingPosition the BoardLocation object representing the position of the black king
      * @param lastFromMove the BoardLocation object representing the position from where the last move was made
-     * @param lastDoublePawnMoveWithWhite the BoardLocation object representing the last double pawn move position for the white side
-     * @param lastDoublePawnMoveWithBlack the BoardLocation object representing the last double pawn move position for the black side
      */
-    public FenUtils(Piece[] pieces, BoardLocation whiteKingPosition, BoardLocation blackKingPosition, BoardLocation lastFromMove, BoardLocation lastDoublePawnMoveWithWhite, BoardLocation lastDoublePawnMoveWithBlack) {
+    public FenUtils(Piece[] pieces, BoardLocation whiteKingPosition, BoardLocation blackKingPosition, BoardLocation lastFromMove) {
         this.pieces = pieces;
         this.whiteKingPosition = whiteKingPosition;
         this.blackKingPosition = blackKingPosition;
         this.lastFromMove = lastFromMove;
-        this.lastDoublePawnMoveWithWhite = lastDoublePawnMoveWithWhite;
-        this.lastDoublePawnMoveWithBlack = lastDoublePawnMoveWithBlack;
     }
 
     /**
@@ -71,7 +72,7 @@ public class FenUtils {
                 } else {
                     Team pieceColor = (Character.isUpperCase(symbol)) ? Team.WHITE : Team.BLACK;
                     PieceType pieceType = getPieceTypeFromSymbol().get(Character.toLowerCase(symbol));
-                    pieces[file * 8 + rank] = new Piece(pieceColor, pieceType);
+                    pieces[file * 8 + rank] = Piece.of(pieceColor, pieceType);
                     if (pieceType.equals(PieceType.KING) && pieceColor.equals(Team.WHITE)) whiteKingIndex = file * 8 + rank;
                     if (pieceType.equals(PieceType.KING) && pieceColor.equals(Team.BLACK)) blackKingIndex = file * 8 + rank;
                     rank++;
@@ -87,10 +88,21 @@ public class FenUtils {
         }
 
         String fenCastlingAvailability = fen.split(" ")[2];
-        Rules.castlingNotAvailable[0] = !fenCastlingAvailability.contains("K");
-        Rules.castlingNotAvailable[1] = !fenCastlingAvailability.contains("Q");
-        Rules.castlingNotAvailable[2] = !fenCastlingAvailability.contains("k");
-        Rules.castlingNotAvailable[3] = !fenCastlingAvailability.contains("q");
+        castlingRights = 0;
+        if (fenCastlingAvailability.contains("K")) castlingRights |= Board.WHITE_KINGSIDE_CASTLING;
+        if (fenCastlingAvailability.contains("Q")) castlingRights |= Board.WHITE_QUEENSIDE_CASTLING;
+        if (fenCastlingAvailability.contains("k")) castlingRights |= Board.BLACK_KINGSIDE_CASTLING;
+        if (fenCastlingAvailability.contains("q")) castlingRights |= Board.BLACK_QUEENSIDE_CASTLING;
+
+        String[] fenFields = fen.split(" ");
+        enPassantSquare = -1;
+        if (fenFields.length > 3 && fenFields[3].length() == 2) {
+            int enPassantFile = fenFields[3].charAt(0) - 'a';
+            int enPassantRank = fenFields[3].charAt(1) - '1';
+            if (enPassantFile >= 0 && enPassantFile < 8 && enPassantRank >= 0 && enPassantRank < 8) {
+                enPassantSquare = enPassantFile + enPassantRank * 8;
+            }
+        }
         return pieces;
     }
 
@@ -142,22 +154,26 @@ public class FenUtils {
         // Active color
         Team activeColor;
         if (team == null) {
-            activeColor = GameState.moveNumber % 2 == 0 ? Team.BLACK : Team.WHITE;
+            activeColor = turn;
         } else {
             activeColor = team;
         }
         fenBuilder.append(" ").append(activeColor == Team.WHITE ? "b" : "w");
 
         // Castling availability
+        int availableCastlingRights = castlingRights & Rules.getCastlingRightsFromPieces(pieces, whiteKingPosition, blackKingPosition);
         StringBuilder castlingAvailability = new StringBuilder();
-        castlingAvailability.append(Rules.isCastlingPossible(team, pieces, null, whiteKingPosition, blackKingPosition, true));
+        if ((availableCastlingRights & Board.WHITE_KINGSIDE_CASTLING) != 0) castlingAvailability.append("K");
+        if ((availableCastlingRights & Board.WHITE_QUEENSIDE_CASTLING) != 0) castlingAvailability.append("Q");
+        if ((availableCastlingRights & Board.BLACK_KINGSIDE_CASTLING) != 0) castlingAvailability.append("k");
+        if ((availableCastlingRights & Board.BLACK_QUEENSIDE_CASTLING) != 0) castlingAvailability.append("q");
         if (castlingAvailability.length() == 0) {
             castlingAvailability.append("-");
         }
         fenBuilder.append(" ").append(castlingAvailability);
 
         // En Passant
-        checkForEnPassant(fenBuilder, activeColor);
+        fenBuilder.append(" ").append(enPassantSquare >= 0 ? BoardLocation.fromIndex(enPassantSquare).getAlgebraicNotationLocation() : "-");
 
         // TODO: Implement Halfmove clock and fullmove number
         fenBuilder.append(" 0 1");
@@ -165,32 +181,6 @@ public class FenUtils {
         return fenBuilder.toString();
     }
 
-    /**
-     * Checks for en passant in the given chessboard position and appends the en passant target square to the FEN string.
-     *
-     * @param fenBuilder the StringBuilder object to which the en passant target square will be appended
-     * @param activeColor the Team representing the active color in the chessboard position
-     */
-    private void checkForEnPassant(StringBuilder fenBuilder, Team activeColor) {
-        // En passant target square
-        BoardLocation enPassantTarget = (activeColor == Team.BLACK) ? lastDoublePawnMoveWithBlack : lastDoublePawnMoveWithWhite;
-        if (enPassantTarget != null) {
-            Piece piece = pieces[enPassantTarget.getX() + enPassantTarget.getY() * 8];
-            if (piece == null) {
-                fenBuilder.append(" -");
-                return;
-            }
-            int lastMovedPawn = piece.doublePawnMoveOnMoveNumber;
-            if (lastMovedPawn == GameState.moveNumber) {
-                fenBuilder.append(" ").append(getNotationFromIntPoint(enPassantTarget));
-            } else {
-                fenBuilder.append(" -");
-            }
-        } else {
-            fenBuilder.append(" -");
-        }
-    }
-
     /**
      * Retrieves the symbol of a piece based on its type and team.
      *
@@ -226,23 +216,4 @@ public class FenUtils {
         pieceTypeFromSymbol.put('q', PieceType.QUEEN);
         return pieceTypeFromSymbol;
     }
-
-    /**
-     * Retrieves the notation string from the integer coordinates of a BoardLocation.
-     *
-     * @param point the BoardLocation object containing the integer coordinates
-     * @return the notation string representing the BoardLocation
-     */
-    private String getNotationFromIntPoint(BoardLocation point) {
-        char file;
-        char rank;
-
-        if (team.equals(Team.WHITE)) file = (char) ('a' + point.getX());
-        else file = (char) ('a' + (7 - point.getX()));
-
-        if (team.equals(Team.WHITE)) rank = (char) ('1' + point.getY());
-        else rank = (char) ('1' + (7 - point.getY()));
-
-        return String.valueOf(file) + rank;
-    }
 }
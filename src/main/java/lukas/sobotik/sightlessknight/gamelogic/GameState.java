@@ -11,23 +11,24 @@ import java.util.List;
 public class GameState {
     @Getter
     public Board board;
-    public static Team currentTurn;
-    List<Move> validMoves;
+    public Team currentTurn;
+    public final PositionAnalysisCache positionAnalysis;
     BoardLocation selectedPieceLocation;
 
-    public static int moveNumber = 0, enPassantCaptures = 0;
+    public int moveNumber = 0;
     static final Team playerTeam = Team.WHITE;
 
-    public static boolean isPawnPromotionPending = false;
-    public static BoardLocation promotionLocation;
-    static PieceType selectedPromotionPieceType;
+    public boolean isPawnPromotionPending = false;
+    public BoardLocation promotionLocation;
+    PieceType selectedPromotionPieceType;
 
     public boolean hasGameEnded = false;
-    public static boolean kinglessGame = false;
+    public boolean kinglessGame;
 
     public List<Move> moveHistory;
     public List<String> parsedMoveHistory;
     public List<String> fenMoveHistory;
+    public List<Long> zobristKeyHistory;
 
     /**
      * Constructs a new GameState object.
@@ -37,13 +38,14 @@ public class GameState {
      * @param kinglessGame a boolean indicating if the game is a kingless game
      */
     public GameState(Board board, Team startingTeam, boolean kinglessGame) {
-        validMoves = new ArrayList<>();
+        positionAnalysis = new PositionAnalysisCache();
         moveHistory = new ArrayList<>();
         parsedMoveHistory = new ArrayList<>();
         fenMoveHistory = new ArrayList<>();
+        zobristKeyHistory = new ArrayList<>();
         currentTurn = startingTeam;
         moveNumber = 0;
-        GameState.kinglessGame = kinglessGame;
+        this.kinglessGame = kinglessGame;
         this.board = board;
     }
 
@@ -93,22 +95,27 @@ public class GameState {
             promotePawn(move.getPromotionPiece());
             return;
         }
-        if ((move.getTo().getY() == 0 || move.getTo().getY() == 7) && piece.type == PieceType.PAWN && piece.promotion == null && !isTest) {
+        if ((move.getTo().getY() == 0 || move.getTo().getY() == 7) && piece.type == PieceType.PAWN && move.getPromotionPiece() == null && !isTest) {
             promotionLocation = move.getTo();
             isPawnPromotionPending = true;
             return;
         }
 
         // En Passant
-        else if (isEnPassantCapture(move) && isTest) {
-            move.setCapturedPiece(board.getPiece(new BoardLocation(move.getTo().getX(), move.getFrom().getY())));
+        else if (isEnPassantCapture(move)) {
+            move.setCapturedPiece(board.getPiece(BoardLocation.of(move.getTo().getX(), move.getFrom().getY())));
             move.setMoveFlag(MoveFlag.enPassant);
         }
 
+        // Castling, moves entered on the board don't carry the flag yet
+        else if (piece.type == PieceType.KING && Math.abs(move.getTo().getX() - move.getFrom().getX()) == 2) {
+            move.setMoveFlag(move.getTo().getX() > move.getFrom().getX() ? MoveFlag.kingsideCastling : MoveFlag.queensideCastling);
+        }
+
         movePieceAndEndTurn(move);
         if (!isTest) {
             createParsedMoveHistory(move);
-            hasGameEnded = Rules.isCheckmate(currentTurn, board) || Rules.isStalemate(currentTurn, board);
+            hasGameEnded = positionAnalysis.isGameOver(currentTurn, board);
         }
     }
 
@@ -118,13 +125,9 @@ public class GameState {
      * @return true if the move is an en passant capture, false otherwise
      */
     private boolean isEnPassantCapture(Move move) {
-        BoardLocation enPassantCapture = new BoardLocation(move.getTo().getX(), move.getFrom().getY());
-        return board.getPiece(enPassantCapture) != null
-                && board.getPiece(enPassantCapture).type == PieceType.PAWN
-                && board.getPiece(enPassantCapture).team != move.getMovedPiece().team
-                && move.getMovedPiece().type == PieceType.PAWN
+        return move.getMovedPiece().type == PieceType.PAWN
                 && move.getFrom().getX() != move.getTo().getX()
-                && (board.getPiece(enPassantCapture).doublePawnMoveOnMoveNumber == GameState.moveNumber - 1);
+                && board.getArrayIndexFromLocation(move.getTo()) == board.getEnPassantSquare();
     }
 
     /**
@@ -159,23 +162,27 @@ public class GameState {
      */
     public void createParsedMoveHistory(Move move) {
         boolean isPromotionSquare = (move.getTo().getY() == 0 && move.getMovedPiece().team == Team.BLACK) || (move.getTo().getY() == 7 && move.getMovedPiece().team == Team.WHITE);
-        if (move.getMovedPiece().type.equals(PieceType.PAWN) && isPromotionSquare && move.getMovedPiece().promotion == null) return;
+        if (move.getMovedPiece().type.equals(PieceType.PAWN) && isPromotionSquare && move.getPromotionPiece() == null) return;
 
         moveHistory.add(move);
         String parsedMove = new AlgebraicNotationUtils(new FenUtils(board.pieces), this, board).getParsedMove(move);
         parsedMoveHistory.add(parsedMove);
 
-        FenUtils fenUtils = new FenUtils(board.pieces, board.whiteKingLocation, board.blackKingLocation, board.lastToLocation, board.lastDoublePawnMoveWithWhitePieces, board.lastDoublePawnMoveWithBlackPieces);
+        FenUtils fenUtils = new FenUtils(board.pieces, board.whiteKingLocation, board.blackKingLocation, board.getLastToLocation());
+        fenUtils.setCastlingRights(board.getCastlingRights());
+        fenUtils.setEnPassantSquare(board.getEnPassantSquare());
         fenMoveHistory.add(fenUtils.generateFenFromPosition(fenUtils.pieces));
+        zobristKeyHistory.add(board.getZobristKey());
     }
 
     /**
-     * Resets the move history, parsed move history, and fen move history.
+     * Resets the move history, parsed move history, fen move history and zobrist key history.
      */
     public void resetHistory() {
         moveHistory = new ArrayList<>();
         parsedMoveHistory = new ArrayList<>();
         fenMoveHistory = new ArrayList<>();
+        zobristKeyHistory = new ArrayList<>();
     }
 
     /**
@@ -0,0 +1,86 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Precomputed attack tables for the pieces that jump to a fixed set of squares (knights, kings and pawns).
+ * Every table has one bitboard per square, using the same indexing as the {@link Board#pieces} array.
+ * Since these attacks are symmetric, the tables also work in reverse, e.g. the knights attacking a square
+ * are the knights standing on the squares a knight on that square would attack.
+ */
+public final class LeapingPieceAttacks {
+    private static final int[][] KNIGHT_OFFSETS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_OFFSETS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+    private static final int[][] WHITE_PAWN_CAPTURE_OFFSETS = {{-1, 1}, {1, 1}};
+    private static final int[][] BLACK_PAWN_CAPTURE_OFFSETS = {{-1, -1}, {1, -1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[Team.values().length][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = getAttacksFromOffsets(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = getAttacksFromOffsets(square, KING_OFFSETS);
+            PAWN_ATTACKS[Team.WHITE.ordinal()][square] = getAttacksFromOffsets(square, WHITE_PAWN_CAPTURE_OFFSETS);
+            PAWN_ATTACKS[Team.BLACK.ordinal()][square] = getAttacksFromOffsets(square, BLACK_PAWN_CAPTURE_OFFSETS);
+        }
+    }
+
+    private LeapingPieceAttacks() {
+
+    }
+
+    /**
+     * Returns the squares attacked by a knight on the given square.
+     *
+     * @param square the index of the square the knight is on (0-63)
+     * @return the bitboard of the attacked squares
+     */
+    public static long getKnightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a king on the given square.
+     *
+     * @param square the index of the square the king is on (0-63)
+     * @return the bitboard of the attacked squares
+     */
+    public static long getKingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares a pawn of the given team on the given square can capture on.
+     * White pawns move up the board (towards the 8th rank), black pawns move down.
+     * To get the pawns of a team attacking a square, look up the attacks of the opposite team from that square.
+     *
+     * @param team the team of the pawn
+     * @param square the index of the square the pawn is on (0-63)
+     * @return the bitboard of the attacked squares
+     */
+    public static long getPawnAttacks(Team team, int square) {
+        return PAWN_ATTACKS[team.ordinal()][square];
+    }
+
+    /**
+     * Returns the bitboard of all squares reachable from the given square by one of the offsets.
+     * Offsets leading off the board are skipped.
+     *
+     * @param square the index of the square (0-63)
+     * @param offsets the x and y offsets of the reachable squares
+     * @return the bitboard of the reachable squares
+     */
+    private static long getAttacksFromOffsets(int square, int[][] offsets) {
+        long attacks = 0L;
+        for (int[] offset : offsets) {
+            int x = square % 8 + offset[0];
+            int y = square / 8 + offset[1];
+            if (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                attacks |= 1L << (x + y * 8);
+            }
+        }
+        return attacks;
+    }
+}
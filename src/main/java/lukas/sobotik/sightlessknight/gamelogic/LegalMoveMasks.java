@@ -0,0 +1,127 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Checks and pins of one team's king in a given position, used for filtering pseudo-legal moves without playing them.
+ * The masks are computed once per position, after which a move of any piece other than the king
+ * is legal if its destination is in the mask returned by {@link #getAllowedTargets(int)}.
+ * King moves need to be verified separately with {@link #isKingMoveLegal(int, Board)}, because the king can't
+ * block or capture its way out of an attack on its destination square.
+ */
+final class LegalMoveMasks {
+    private final Team team;
+    private final Team enemyTeam;
+    private final int kingSquare;
+    private final long checkers;
+    private final long checkMask;
+    private final long pinned;
+    private final long[] pinRays = new long[64];
+
+    /**
+     * Computes the checkers, the squares that resolve a check and the pinned pieces of the given team.
+     * If the team has no king on the board (e.g. in a kingless training game), every move is allowed.
+     *
+     * @param team the team whose king is checked and whose pieces can be pinned
+     * @param board the board where the pieces move
+     */
+    LegalMoveMasks(Team team, Board board) {
+        this.team = team;
+        this.enemyTeam = team == Team.WHITE ? Team.BLACK : Team.WHITE;
+
+        Bitboard bitboard = board.bitboard;
+        long kings = bitboard.getBitboard(team, PieceType.KING);
+        if (kings == 0) {
+            kingSquare = -1;
+            checkers = 0L;
+            checkMask = ~0L;
+            pinned = 0L;
+            return;
+        }
+        kingSquare = Long.numberOfTrailingZeros(kings);
+
+        // Only the one piece giving check can be captured or blocked, a double check can only be escaped by the king
+        long occupied = bitboard.getOccupied();
+        checkers = Rules.getAttackersTo(kingSquare, enemyTeam, occupied, board);
+        if (checkers == 0) {
+            checkMask = ~0L;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | SlidingPieceAttacks.getSquaresBetween(kingSquare, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = 0L;
+        }
+
+        // Look through friendly pieces from the king for enemy sliding pieces, a lone friendly piece in between is pinned
+        long enemyPieces = bitboard.getTeamBitboard(enemyTeam);
+        long enemyQueens = bitboard.getBitboard(enemyTeam, PieceType.QUEEN);
+        long snipers = (SlidingPieceAttacks.getRookAttacks(kingSquare, enemyPieces) & (bitboard.getBitboard(enemyTeam, PieceType.ROOK) | enemyQueens))
+                | (SlidingPieceAttacks.getBishopAttacks(kingSquare, enemyPieces) & (bitboard.getBitboard(enemyTeam, PieceType.BISHOP) | enemyQueens));
+        long pinnedPieces = 0L;
+        while (snipers != 0) {
+            int sniperSquare = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long between = SlidingPieceAttacks.getSquaresBetween(kingSquare, sniperSquare);
+            long blockers = between & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinnedPieces |= blockers;
+                pinRays[Long.numberOfTrailingZeros(blockers)] = between | Bitboard.getSquareBitboard(sniperSquare);
+            }
+        }
+        pinned = pinnedPieces;
+    }
+
+    /**
+     * Returns whether the team has a king on the board, i.e. whether any moves need to be filtered at all.
+     *
+     * @return true if the team has a king, false otherwise
+     */
+    boolean hasKing() {
+        return kingSquare != -1;
+    }
+
+    /**
+     * Returns the index of the team's king.
+     *
+     * @return the index of the king's square (0-63), or -1 if the team has no king
+     */
+    int getKingSquare() {
+        return kingSquare;
+    }
+
+    /**
+     * Returns the enemy pieces giving check to the team's king.
+     *
+     * @return the bitboard of the checking pieces
+     */
+    long getCheckers() {
+        return checkers;
+    }
+
+    /**
+     * Returns the squares a piece other than the king on the given square can legally move to,
+     * taking into account both checks and pins.
+     *
+     * @param fromSquare the index of the square the piece is on (0-63)
+     * @return the bitboard of the allowed destination squares
+     */
+    long getAllowedTargets(int fromSquare) {
+        if ((pinned & Bitboard.getSquareBitboard(fromSquare)) != 0) {
+            return checkMask & pinRays[fromSquare];
+        }
+        return checkMask;
+    }
+
+    /**
+     * Returns whether the king can move to the given square without being attacked there.
+     * The king is removed from the occupancy first, so that it can't hide behind itself from a sliding piece.
+     *
+     * @param toSquare the index of the square the king moves to (0-63)
+     * @param board the board where the pieces move
+     * @return true if the square isn't attacked by the enemy, false otherwise
+     */
+    boolean isKingMoveLegal(int toSquare, Board board) {
+        long occupied = board.bitboard.getOccupied() & ~Bitboard.getSquareBitboard(kingSquare);
+        return Rules.getAttackersTo(toSquare, enemyTeam, occupied, board) == 0;
+    }
+}
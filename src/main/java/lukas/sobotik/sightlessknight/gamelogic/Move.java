@@ -72,7 +72,7 @@ public class Move {
      * @return a simplified version of the moved piece.
      */
     public Piece getSimplifiedMovedPiece() {
-        return new Piece(movedPiece.team, movedPiece.type);
+        return movedPiece;
     }
 
     /**
@@ -80,8 +80,8 @@ public class Move {
      * @return a simplified version of the captured piece.
      */
     public Piece getSimplifiedCapturedPiece() {
-        if (capturedPiece == null) return new Piece(null, null);
-        return new Piece(capturedPiece.team, capturedPiece.type);
+        if (capturedPiece == null) return Piece.NONE;
+        return capturedPiece;
     }
 
     @Override
@@ -0,0 +1,76 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+/**
+ * Reusable list of {@link PackedMove packed moves} backed by a primitive int array.
+ * A search keeps one list per ply and clears it before generating moves into it, so no garbage is created.
+ */
+public class MoveList {
+    /**
+     * More than the maximum number of legal moves in any chess position (218).
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int[] moves;
+    private int size;
+
+    /**
+     * Creates an empty move list with the default capacity.
+     */
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty move list with the given capacity.
+     *
+     * @param capacity the maximum number of moves the list can hold
+     */
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Adds a packed move to the end of the list.
+     *
+     * @param packedMove the packed move
+     */
+    public void add(int packedMove) {
+        moves[size++] = packedMove;
+    }
+
+    /**
+     * Returns the packed move at the given index.
+     *
+     * @param index the index of the move
+     * @return the packed move
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Returns the number of moves in the list.
+     *
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the list contains no moves.
+     *
+     * @return true if the list is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all moves from the list, keeping the underlying array.
+     */
+    public void clear() {
+        size = 0;
+    }
+}
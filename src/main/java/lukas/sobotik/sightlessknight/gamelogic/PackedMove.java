@@ -0,0 +1,144 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.MoveFlag;
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+
+/**
+ * Compact representation of a move packed into a single int, so that moves can be generated into
+ * a {@link MoveList} without allocating any objects.
+ * <p>
+ * Bits 0-5 hold the index of the starting square, bits 6-11 the index of the destination square,
+ * bits 12-13 the {@link MoveFlag} and bits 14-16 the promotion piece (0 for no promotion).
+ * The squares use the same indexing as the {@link Board#pieces} array.
+ */
+public final class PackedMove {
+    /**
+     * Value used when there is no move, it would be a move from a1 to a1, which is never legal.
+     */
+    public static final int NO_MOVE = 0;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int FLAG_SHIFT = 12;
+    private static final int FLAG_MASK = 0x3;
+    private static final int PROMOTION_SHIFT = 14;
+    private static final int PROMOTION_MASK = 0x7;
+
+    private static final MoveFlag[] MOVE_FLAGS = MoveFlag.values();
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+    private PackedMove() {
+
+    }
+
+    /**
+     * Packs a move without any special flags or promotion.
+     *
+     * @param from the index of the starting square (0-63)
+     * @param to the index of the destination square (0-63)
+     * @return the packed move
+     */
+    public static int encode(int from, int to) {
+        return from | (to << TO_SHIFT);
+    }
+
+    /**
+     * Packs a move.
+     *
+     * @param from the index of the starting square (0-63)
+     * @param to the index of the destination square (0-63)
+     * @param moveFlag the special move flag of the move
+     * @param promotionPiece the piece the pawn promotes to, or null if the move isn't a promotion
+     * @return the packed move
+     */
+    public static int encode(int from, int to, MoveFlag moveFlag, PieceType promotionPiece) {
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return from | (to << TO_SHIFT) | (moveFlag.ordinal() << FLAG_SHIFT) | (promotion << PROMOTION_SHIFT);
+    }
+
+    /**
+     * Returns the index of the starting square of the packed move.
+     *
+     * @param packedMove the packed move
+     * @return the index of the starting square (0-63)
+     */
+    public static int getFrom(int packedMove) {
+        return packedMove & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the index of the destination square of the packed move.
+     *
+     * @param packedMove the packed move
+     * @return the index of the destination square (0-63)
+     */
+    public static int getTo(int packedMove) {
+        return (packedMove >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the special move flag of the packed move.
+     *
+     * @param packedMove the packed move
+     * @return the move flag
+     */
+    public static MoveFlag getMoveFlag(int packedMove) {
+        return MOVE_FLAGS[(packedMove >>> FLAG_SHIFT) & FLAG_MASK];
+    }
+
+    /**
+     * Returns the piece the pawn promotes to in the packed move.
+     *
+     * @param packedMove the packed move
+     * @return the promotion piece, or null if the move isn't a promotion
+     */
+    public static PieceType getPromotionPiece(int packedMove) {
+        int promotion = (packedMove >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotion == 0 ? null : PIECE_TYPES[promotion - 1];
+    }
+
+    /**
+     * Returns whether the packed move is a pawn promotion.
+     *
+     * @param packedMove the packed move
+     * @return true if the move is a promotion, false otherwise
+     */
+    public static boolean isPromotion(int packedMove) {
+        return ((packedMove >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+    }
+
+    /**
+     * Converts a packed move to a {@link Move}, filling in the moved and captured pieces from the board.
+     * The board has to be in the position the move was generated in.
+     *
+     * @param packedMove the packed move
+     * @param board the board where the move takes place
+     * @return the move object
+     */
+    public static Move toMove(int packedMove, Board board) {
+        int from = getFrom(packedMove);
+        int to = getTo(packedMove);
+        MoveFlag moveFlag = getMoveFlag(packedMove);
+
+        // The pawn captured en passant is next to the moving pawn, not on the destination square
+        Piece capturedPiece = moveFlag == MoveFlag.enPassant
+                ? board.pieces[(to % 8) + (from / 8) * 8]
+                : board.pieces[to];
+        Move move = new Move(board.getPointFromArrayIndex(from), board.getPointFromArrayIndex(to), board.pieces[from], capturedPiece);
+        move.setMoveFlag(moveFlag);
+        move.setPromotionPiece(getPromotionPiece(packedMove));
+        return move;
+    }
+
+    /**
+     * Converts a {@link Move} to a packed move.
+     *
+     * @param move the move object
+     * @param board the board where the move takes place
+     * @return the packed move
+     */
+    public static int fromMove(Move move, Board board) {
+        MoveFlag moveFlag = move.getMoveFlag() == null ? MoveFlag.none : move.getMoveFlag();
+        return encode(board.getArrayIndexFromLocation(move.getFrom()), board.getArrayIndexFromLocation(move.getTo()), moveFlag, move.getPromotionPiece());
+    }
+}
@@ -0,0 +1,276 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Compact value-type snapshot of a chess position, for code that prefers copying a position to undoing moves.
+ * The whole position is stored in a single array of sixteen longs: the twelve piece bitboards, the two team bitboards,
+ * the side to move, castling rights, en passant square and halfmove clock packed into one long, and the Zobrist key.
+ * Copying a position is therefore a single array copy of about 150 bytes, compared to the piece array, bitboards
+ * and state stack that are copied by {@link Board#Board(Board)}.
+ * <p>
+ * Positions are meant to be used copy-make style: {@link #copy()} the position, then {@link #makeMove(int)} on the copy.
+ * There is no way to undo a move, the original position is simply kept.
+ */
+public final class Position {
+    private static final int PIECE_TYPES = PieceType.values().length;
+    private static final PieceType[] PIECE_TYPE_VALUES = PieceType.values();
+    private static final int TEAM_INDEX = Team.values().length * PIECE_TYPES;
+    private static final int STATE_INDEX = TEAM_INDEX + Team.values().length;
+    private static final int ZOBRIST_INDEX = STATE_INDEX + 1;
+    private static final int LENGTH = ZOBRIST_INDEX + 1;
+
+    /*
+     * Layout of the packed state: bit 0 is the side to move (set when black is to move), bits 1-4 the castling rights,
+     * bits 5-11 the en passant square plus one (0 when there is none) and bits 12-31 the halfmove clock.
+     */
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EN_PASSANT_SHIFT = 5;
+    private static final int HALFMOVE_CLOCK_SHIFT = 12;
+
+    private final long[] state;
+
+    private Position(long[] state) {
+        this.state = state;
+    }
+
+    /**
+     * Creates a snapshot of the current position of the board.
+     *
+     * @param board the board to take the position from
+     */
+    public Position(Board board) {
+        state = new long[LENGTH];
+        for (Team team : Team.values()) {
+            for (PieceType type : PIECE_TYPE_VALUES) {
+                state[Bitboard.getBitboardIndex(team, type)] = board.bitboard.getBitboard(team, type);
+            }
+            state[TEAM_INDEX + team.ordinal()] = board.bitboard.getTeamBitboard(team);
+        }
+        state[STATE_INDEX] = packState(board.sideToMove, board.getCastlingRights(), board.getEnPassantSquare(), board.getHalfmoveClock());
+        state[ZOBRIST_INDEX] = board.getZobristKey();
+    }
+
+    /**
+     * Returns an independent copy of the position.
+     *
+     * @return the copied position
+     */
+    public Position copy() {
+        return new Position(state.clone());
+    }
+
+    /**
+     * Plays a move on this position, updating the castling rights, en passant square, halfmove clock and Zobrist key
+     * the same way as {@link Board#movePiece(Move)} does. Castling, en passant captures and promotions are recognized
+     * from the moved piece and the squares, so the move flag isn't required.
+     * The move is not checked for legality.
+     *
+     * @param packedMove the move packed by {@link PackedMove}
+     */
+    public void makeMove(int packedMove) {
+        int from = PackedMove.getFrom(packedMove);
+        int to = PackedMove.getTo(packedMove);
+        int movedIndex = getBitboardIndexOn(from);
+        if (movedIndex < 0 || from == to) return;
+
+        Team team = getTeam(movedIndex);
+        PieceType type = PIECE_TYPE_VALUES[movedIndex % PIECE_TYPES];
+        int enPassantSquare = getEnPassantSquare();
+        boolean isCapture = false;
+
+        int capturedIndex = getBitboardIndexOn(to);
+        if (capturedIndex >= 0) {
+            togglePiece(capturedIndex, to);
+            isCapture = true;
+        }
+        togglePiece(movedIndex, from);
+        PieceType promotionPiece = PackedMove.getPromotionPiece(packedMove);
+        if (type == PieceType.PAWN && promotionPiece != null) {
+            togglePiece(Bitboard.getBitboardIndex(team, promotionPiece), to);
+        } else {
+            togglePiece(movedIndex, to);
+        }
+
+        if (type == PieceType.PAWN && to == enPassantSquare && (from - to) % 8 != 0) {
+            int capturedSquare = team == Team.WHITE ? to - 8 : to + 8;
+            togglePiece(Bitboard.getBitboardIndex(getEnemyTeam(team), PieceType.PAWN), capturedSquare);
+            isCapture = true;
+        }
+        if (type == PieceType.KING && Math.abs(from - to) == 2) {
+            int rookIndex = Bitboard.getBitboardIndex(team, PieceType.ROOK);
+            togglePiece(rookIndex, to > from ? from + 3 : from - 4);
+            togglePiece(rookIndex, (from + to) / 2);
+        }
+
+        int castlingRights = getCastlingRights();
+        int newCastlingRights = castlingRights & Board.CASTLING_RIGHTS_KEPT[from] & Board.CASTLING_RIGHTS_KEPT[to];
+        int newEnPassantSquare = -1;
+        if (type == PieceType.PAWN && Math.abs(from - to) == 16
+                && (LeapingPieceAttacks.getPawnAttacks(team, (from + to) / 2) & getBitboard(getEnemyTeam(team), PieceType.PAWN)) != 0) {
+            newEnPassantSquare = (from + to) / 2;
+        }
+        int halfmoveClock = (type == PieceType.PAWN || isCapture) ? 0 : getHalfmoveClock() + 1;
+
+        state[ZOBRIST_INDEX] ^= Zobrist.getCastlingKey(castlingRights) ^ Zobrist.getCastlingKey(newCastlingRights)
+                ^ Zobrist.getEnPassantKey(getFile(enPassantSquare)) ^ Zobrist.getEnPassantKey(getFile(newEnPassantSquare))
+                ^ Zobrist.getSideToMoveKey();
+        state[STATE_INDEX] = packState(getEnemyTeam(getSideToMove()), newCastlingRights, newEnPassantSquare, halfmoveClock);
+    }
+
+    /**
+     * Returns the piece on a square.
+     *
+     * @param square the index of the square (0-63)
+     * @return the piece on the square, or null if the square is empty
+     */
+    public Piece getPiece(int square) {
+        int index = getBitboardIndexOn(square);
+        return index < 0 ? null : Piece.of(getTeam(index), PIECE_TYPE_VALUES[index % PIECE_TYPES]);
+    }
+
+    /**
+     * Returns the pieces of the position as an array indexed like {@link Board#pieces}, used e.g. for drawing a preview of the position.
+     *
+     * @return a new array of 64 pieces, with null for the empty squares
+     */
+    public Piece[] getPieces() {
+        Piece[] pieces = new Piece[64];
+        for (int index = 0; index < TEAM_INDEX; index++) {
+            Piece piece = Piece.of(getTeam(index), PIECE_TYPE_VALUES[index % PIECE_TYPES]);
+            for (long bitboard = state[index]; bitboard != 0; bitboard &= bitboard - 1) {
+                pieces[Long.numberOfTrailingZeros(bitboard)] = piece;
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * Method that checks whether the king of a team is attacked.
+     *
+     * @param team the team of the king
+     * @return true if the king is attacked, false if it isn't or if the team has no king
+     */
+    public boolean isKingInCheck(Team team) {
+        long king = getBitboard(team, PieceType.KING);
+        return king != 0 && isSquareAttacked(Long.numberOfTrailingZeros(king), getEnemyTeam(team));
+    }
+
+    /**
+     * Method that checks whether a square is attacked by any piece of a team.
+     *
+     * @param square the index of the square (0-63)
+     * @param attackingTeam the team whose pieces attack the square
+     * @return true if the square is attacked, false otherwise
+     */
+    public boolean isSquareAttacked(int square, Team attackingTeam) {
+        long occupied = getOccupied();
+        long queens = getBitboard(attackingTeam, PieceType.QUEEN);
+        return (LeapingPieceAttacks.getKnightAttacks(square) & getBitboard(attackingTeam, PieceType.KNIGHT)) != 0
+                || (LeapingPieceAttacks.getKingAttacks(square) & getBitboard(attackingTeam, PieceType.KING)) != 0
+                || (LeapingPieceAttacks.getPawnAttacks(getEnemyTeam(attackingTeam), square) & getBitboard(attackingTeam, PieceType.PAWN)) != 0
+                || (SlidingPieceAttacks.getBishopAttacks(square, occupied) & (getBitboard(attackingTeam, PieceType.BISHOP) | queens)) != 0
+                || (SlidingPieceAttacks.getRookAttacks(square, occupied) & (getBitboard(attackingTeam, PieceType.ROOK) | queens)) != 0;
+    }
+
+    /**
+     * Method that checks whether a knight, bishop, rook or queen can legally move to a square,
+     * by playing the move on a copy of the position and checking that its own king isn't attacked.
+     *
+     * @param from the index of the square of the piece (0-63)
+     * @param to the index of the destination square (0-63)
+     * @return true if the piece can move to the square, false if it can't or if it's a pawn or a king
+     */
+    public boolean isLegalPieceMove(int from, int to) {
+        Piece piece = getPiece(from);
+        if (piece == null) return false;
+        long attacks = switch (piece.type) {
+            case KNIGHT -> LeapingPieceAttacks.getKnightAttacks(from);
+            case BISHOP -> SlidingPieceAttacks.getBishopAttacks(from, getOccupied());
+            case ROOK -> SlidingPieceAttacks.getRookAttacks(from, getOccupied());
+            case QUEEN -> SlidingPieceAttacks.getQueenAttacks(from, getOccupied());
+            default -> 0L;
+        };
+        if ((attacks & ~getTeamBitboard(piece.team) & Bitboard.getSquareBitboard(to)) == 0) return false;
+
+        Position position = copy();
+        position.makeMove(PackedMove.encode(from, to));
+        return !position.isKingInCheck(piece.team);
+    }
+
+    public long getBitboard(Team team, PieceType type) {
+        return state[Bitboard.getBitboardIndex(team, type)];
+    }
+
+    public long getTeamBitboard(Team team) {
+        return state[TEAM_INDEX + team.ordinal()];
+    }
+
+    public long getOccupied() {
+        return state[TEAM_INDEX] | state[TEAM_INDEX + 1];
+    }
+
+    public Team getSideToMove() {
+        return (state[STATE_INDEX] & 1) == 0 ? Team.WHITE : Team.BLACK;
+    }
+
+    public int getCastlingRights() {
+        return (int) (state[STATE_INDEX] >>> CASTLING_SHIFT) & 0xF;
+    }
+
+    public int getEnPassantSquare() {
+        return (int) ((state[STATE_INDEX] >>> EN_PASSANT_SHIFT) & 0x7F) - 1;
+    }
+
+    public int getHalfmoveClock() {
+        return (int) (state[STATE_INDEX] >>> HALFMOVE_CLOCK_SHIFT);
+    }
+
+    public long getZobristKey() {
+        return state[ZOBRIST_INDEX];
+    }
+
+    /**
+     * Adds or removes a piece on a square, updating the team bitboard and the Zobrist key.
+     */
+    private void togglePiece(int bitboardIndex, int square) {
+        long bit = Bitboard.getSquareBitboard(square);
+        Team team = getTeam(bitboardIndex);
+        state[bitboardIndex] ^= bit;
+        state[TEAM_INDEX + team.ordinal()] ^= bit;
+        state[ZOBRIST_INDEX] ^= Zobrist.getPieceKey(team, PIECE_TYPE_VALUES[bitboardIndex % PIECE_TYPES], square);
+    }
+
+    /**
+     * Returns the index of the bitboard of the piece on a square, or -1 if the square is empty.
+     */
+    private int getBitboardIndexOn(int square) {
+        long bit = Bitboard.getSquareBitboard(square);
+        if ((getOccupied() & bit) == 0) return -1;
+        int index = (state[TEAM_INDEX] & bit) != 0 ? 0 : PIECE_TYPES;
+        while ((state[index] & bit) == 0) {
+            index++;
+        }
+        return index;
+    }
+
+    private static Team getTeam(int bitboardIndex) {
+        return bitboardIndex < PIECE_TYPES ? Team.WHITE : Team.BLACK;
+    }
+
+    private static Team getEnemyTeam(Team team) {
+        return team == Team.WHITE ? Team.BLACK : Team.WHITE;
+    }
+
+    private static int getFile(int square) {
+        return square < 0 ? -1 : square % 8;
+    }
+
+    private static long packState(Team sideToMove, int castlingRights, int enPassantSquare, int halfmoveClock) {
+        return (sideToMove == Team.BLACK ? 1L : 0L)
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) (enPassantSquare + 1) << EN_PASSANT_SHIFT)
+                | ((long) halfmoveClock << HALFMOVE_CLOCK_SHIFT);
+    }
+}
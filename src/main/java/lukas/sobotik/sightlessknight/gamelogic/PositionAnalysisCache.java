@@ -0,0 +1,114 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Small per-game cache of what has been computed about a position, keyed by its Zobrist key and the team it was computed for.
+ * After a move, the game state, the algebraic notation and the view all ask about the same position,
+ * so the check state and the legal moves are only computed by the first of them.
+ * The values are computed lazily, a caller that only needs the check state never pays for the full move list.
+ * <p>
+ * The cache is direct-mapped with a few slots, so positions that are visited again after undoing moves are usually still cached,
+ * and an entry is simply replaced when another position maps to the same slot.
+ */
+public class PositionAnalysisCache {
+    private static final int DEFAULT_SIZE = 16;
+
+    private final Entry[] entries;
+    private final int indexMask;
+
+    /**
+     * Creates an empty cache with the default number of slots.
+     */
+    public PositionAnalysisCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param size the number of slots, must be a power of two
+     */
+    public PositionAnalysisCache(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("The size of the cache must be a power of two, got " + size);
+        }
+        entries = new Entry[size];
+        indexMask = size - 1;
+    }
+
+    /**
+     * Method that returns the check state of a team in the current position of the board.
+     *
+     * @param team the team to check
+     * @param board the board where the pieces move
+     * @return the check state of the team, computed only once per position
+     */
+    public CheckState getCheckState(Team team, Board board) {
+        Entry entry = getEntry(team, board);
+        if (entry.checkState == null) {
+            entry.checkState = Rules.getCheckState(team, board);
+        }
+        return entry.checkState;
+    }
+
+    /**
+     * Method that returns all legal moves of a team in the current position of the board, including every promotion piece.
+     * The moves are cached packed, every call returns a new copy of them, so a caller can't change the cached moves.
+     *
+     * @param team the team to generate the moves for
+     * @param board the board where the pieces move
+     * @return the legal moves packed by {@link PackedMove}, computed only once per position
+     */
+    public int[] getLegalMoves(Team team, Board board) {
+        Entry entry = getEntry(team, board);
+        if (entry.legalMoves == null) {
+            MoveList moveList = new MoveList();
+            Rules.getAllLegalMoves(team, board, moveList);
+            entry.legalMoves = new int[moveList.size()];
+            for (int i = 0; i < moveList.size(); i++) {
+                entry.legalMoves[i] = moveList.get(i);
+            }
+        }
+        return entry.legalMoves.clone();
+    }
+
+    /**
+     * Method that checks whether the game has ended in the current position of the board, because the team is checkmated or stalemated.
+     *
+     * @param team the team to move
+     * @param board the board where the pieces move
+     * @return true if the team is checkmated or stalemated, false otherwise
+     */
+    public boolean isGameOver(Team team, Board board) {
+        CheckState checkState = getCheckState(team, board);
+        return checkState == CheckState.CHECKMATE || checkState == CheckState.STALEMATE;
+    }
+
+    /**
+     * Returns the entry of the position, replacing the entry in its slot if it belongs to another position.
+     */
+    private Entry getEntry(Team team, Board board) {
+        long zobristKey = board.getZobristKey();
+        int index = ((int) (zobristKey ^ (zobristKey >>> 32)) ^ team.ordinal()) & indexMask;
+        Entry entry = entries[index];
+        if (entry == null || entry.zobristKey != zobristKey || entry.team != team) {
+            entry = new Entry(zobristKey, team);
+            entries[index] = entry;
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        private final long zobristKey;
+        private final Team team;
+        private CheckState checkState;
+        private int[] legalMoves;
+
+        private Entry(long zobristKey, Team team) {
+            this.zobristKey = zobristKey;
+            this.team = team;
+        }
+    }
+}
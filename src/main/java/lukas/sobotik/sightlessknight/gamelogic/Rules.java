@@ -1,634 +1,539 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
 import lukas.sobotik.sightlessknight.gamelogic.entity.MoveFlag;
 import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 
 public class Rules {
     static final Team playerTeam = GameState.playerTeam;
-    static boolean[] castlingNotAvailable = {false, false, false, false};
+    private static final PieceType[] PIECE_TYPES_WITH_ATTACK_TABLES = {PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN};
+    private static final PieceType[] PROMOTION_PIECES = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+
+    // Castling tables, in the order white kingside, white queenside, black kingside, black queenside
+    private static final int[] CASTLING_RIGHTS = {Board.WHITE_KINGSIDE_CASTLING, Board.WHITE_QUEENSIDE_CASTLING, Board.BLACK_KINGSIDE_CASTLING, Board.BLACK_QUEENSIDE_CASTLING};
+    private static final int[] CASTLING_KING_DESTINATIONS = {6, 2, 62, 58};
+    private static final MoveFlag[] CASTLING_MOVE_FLAGS = {MoveFlag.kingsideCastling, MoveFlag.queensideCastling, MoveFlag.kingsideCastling, MoveFlag.queensideCastling};
+    // Squares between the king and the rook
+    private static final long[] CASTLING_EMPTY_SQUARES = {0x60L, 0x0EL, 0x60L << 56, 0x0EL << 56};
+    // Squares the king starts on, passes through and lands on
+    private static final long[] CASTLING_SAFE_SQUARES = {0x70L, 0x1CL, 0x70L << 56, 0x1CL << 56};
+
+    // Move generation stages, promotions and en passant are generated together with the captures
+    static final int GENERATE_CAPTURES = 1;
+    static final int GENERATE_QUIET_MOVES = 2;
+    static final int GENERATE_ALL_MOVES = GENERATE_CAPTURES | GENERATE_QUIET_MOVES;
+    // More than the number of moves of any single piece (27 for a queen)
+    private static final int MAX_MOVES_OF_PIECE = 32;
     private Rules() {
 
     }
-    /**
-     * Method with default settings for getting valid moves of a piece
-     * @param selectedPieceLocation where the piece is located on the board
-     * @param piece what piece are the moves generated for
-     * @param board the board where the moves take place
-     * @param removePseudoLegalMoves whether the method should check for checks and piece pins
-     * @return list of valid moves for a given piece
-     */
-    public static List<Move> getValidMoves(BoardLocation selectedPieceLocation, Piece piece, Board board, boolean removePseudoLegalMoves) {
-        return getValidMoves(selectedPieceLocation, piece, board, removePseudoLegalMoves, true, false);
-    }
-
-    /**
-     * Method with manual settings for getting valid moves of a piece
-     * @param selectedPieceLocation where the piece is located on the board
-     * @param piece what piece are the moves generated for
-     * @param board the board where the moves take place
-     * @param removePseudoLegalMoves whether the method should check for checks and piece pins
-     * @param addCastlingMoves whether the method should add castling moves
-     * @param ignoreEnPassant whether the method should ignore en passant moves
-     * @return list of valid moves for a given piece
-     */
-    static List<Move> getValidMoves(BoardLocation selectedPieceLocation, Piece piece, Board board, boolean removePseudoLegalMoves, boolean addCastlingMoves, boolean ignoreEnPassant) {
-        List<Move> legalMoves = new ArrayList<>();
-        switch (piece.type) {
-            case PAWN -> legalMoves.addAll(Objects.requireNonNull(getValidPawnMoves(selectedPieceLocation, piece.team, board, ignoreEnPassant)));
-            case BISHOP -> legalMoves.addAll(getValidBishopMoves(legalMoves, selectedPieceLocation, piece.team, board, false));
-            case KNIGHT -> legalMoves.addAll(getValidKnightMoves(selectedPieceLocation, piece.team, board, false));
-            case ROOK -> legalMoves.addAll(getValidRookMoves(selectedPieceLocation, piece.team, board, false));
-            case KING -> legalMoves.addAll(getValidKingMoves(legalMoves, selectedPieceLocation, piece.team, board, addCastlingMoves, false));
-            case QUEEN -> legalMoves.addAll(getValidQueenMoves(legalMoves, selectedPieceLocation, piece.team, board, false));
-        }
-        if (removePseudoLegalMoves) {
-            removePseudoLegalMoves(legalMoves, selectedPieceLocation, piece.team, board);
-        }
-        return legalMoves;
-    }
-
-    /**
-     * Used for disambiguating friendly moves, it will return all possible moves including friendly piece captures, so it shouldn't be used for normal applications
-     * @param selectedPieceLocation location of the piece that the method will generate legal moves for
-     * @param piece piece that the method will generate moves for
-     * @param board the board where the moves take place
-     * @return list of all pseudo-legal moves for a given piece
-     */
-    static List<Move> getPseudoLegalMoves(BoardLocation selectedPieceLocation, Piece piece, Board board) {
-        List<Move> legalMoves = new ArrayList<>();
-        switch (piece.type) {
-            case KNIGHT -> legalMoves.addAll(getValidKnightMoves(selectedPieceLocation, piece.team, board, true));
-            case BISHOP -> legalMoves.addAll(getValidBishopMoves(legalMoves, selectedPieceLocation, piece.team, board, true));
-            case ROOK -> legalMoves.addAll(getValidRookMoves(selectedPieceLocation, piece.team, board, true));
-            case QUEEN -> legalMoves.addAll(getValidQueenMoves(legalMoves, selectedPieceLocation, piece.team, board, true));
-            case KING -> legalMoves.addAll(getValidKingMoves(legalMoves, selectedPieceLocation, piece.team, board, true, true));
-        }
-        return legalMoves;
-    }
-
     /**
      * This method is used to get all valid moves for a specific team on the board.
      * It also handles special moves like pawn promotion and en passant.
      * @param team The team for which to generate the moves.
      * @param board The current state of the game board.
-     * @param addTestMoves A boolean flag indicating whether to add test moves or not. If true, it will add all possible promotion moves for pawns and mark en passant possible moves.
+     * @param addTestMoves A boolean flag indicating whether to add test moves or not. If true, it will add all possible promotion moves for pawns.
      * @return A list of all valid moves for the given team.
      */
     public static List<Move> getAllValidMovesForTeam(Team team, Board board, boolean addTestMoves) {
-        List<Move> validMoves = new ArrayList<>();
-        for (int i = 0; i < 64; i++) {
-            var piece = board.pieces[i];
-            var location = board.getPointFromArrayIndex(i);
-            if (piece == null || piece.team != team) continue;
-
-            var allMoves = Rules.getValidMoves(board.getPointFromArrayIndex(i), piece, board, true);
-            validMoves.addAll(new HashSet<>(allMoves).stream().map(move -> {
-                if (!addTestMoves) return move;
-                var moveLocation = move.getTo();
-                // Pawn Promotion
-                if (((moveLocation.getY() == 0 && piece.team == Team.BLACK) || (moveLocation.getY() == 7 && piece.team == Team.WHITE))
-                        && piece.type == PieceType.PAWN) {
-                    // Add four promotion options: bishop, knight, rook, queen
-                    List<PieceType> promotionPieces = Arrays.asList(PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK, PieceType.QUEEN);
-                    for (PieceType promotionPiece : promotionPieces) {
-                        Move promotionMove = new Move(location, moveLocation, piece, board.getPiece(moveLocation));
-                        promotionMove.setPromotionPiece(promotionPiece);
-                        if (promotionPiece == PieceType.QUEEN) return promotionMove;
-                        validMoves.add(promotionMove);
-                    }
-                }
-                // En Passant
-                BoardLocation enPassantCapture = new BoardLocation(moveLocation.getX(), location.getY());
-                if (board.getPiece(enPassantCapture) != null
-                        && location.getX() != moveLocation.getX()) {
-                    piece.enPassant = true;
-                }
-                return move;
-            }).toList());
+        MoveList moveList = new MoveList();
+        getAllLegalMoves(team, board, moveList);
+
+        List<Move> validMoves = new ArrayList<>(moveList.size());
+        for (int i = 0; i < moveList.size(); i++) {
+            int packedMove = moveList.get(i);
+            if (PackedMove.isPromotion(packedMove) && !addTestMoves) {
+                // Without test moves, the promotion piece is chosen by the player after the move
+                if (PackedMove.getPromotionPiece(packedMove) != PieceType.QUEEN) continue;
+                packedMove = PackedMove.encode(PackedMove.getFrom(packedMove), PackedMove.getTo(packedMove));
+            }
+            validMoves.add(PackedMove.toMove(packedMove, board));
         }
-
         return validMoves;
     }
 
     /**
-     * Method that returns whether enemy is attacking a certain square on the board
-     * @param square what square the method should search for
-     * @param friendlyTeam friendly team
-     * @param board board where the pieces move
-     * @return true or false depending on whether enemy attacks the given square
+     * Method that generates all legal moves of a team as packed moves, without creating any move objects.
+     * Promotions are generated once for every promotion piece.
+     * When the king is in check, only moves resolving the check are generated, and in double check only king moves.
+     * @param team the team to generate the moves for
+     * @param board the board where the pieces move
+     * @param moveList the list the moves are written to, it's cleared first
      */
-    public static boolean isSquareAttackedByEnemy(BoardLocation square, Team friendlyTeam, Board board) {
-        List<Move> list;
-
-        for (PieceType type : PieceType.values()) {
-            Piece info = new Piece(friendlyTeam, type);
-            list = getValidMoves(square, info, board, false, false, true);
-            for (Move move : list) {
-                var to = move.getTo();
-                Piece target = board.getPiece(to);
-                if (target != null && target.type == type) {
-                    return true;
-                }
-            }
-            list.clear();
-        }
-        return false;
+    public static void getAllLegalMoves(Team team, Board board, MoveList moveList) {
+        moveList.clear();
+        addLegalMoves(team, board, new LegalMoveMasks(team, board), GENERATE_ALL_MOVES, ~0L, moveList);
     }
 
     /**
-     * Method that returns whether a king can castle
-     * @param team what team's king castling rights the method should return
-     * @param pieces array of pieces on the board
-     * @param whiteKing location of the white king
-     * @param blackKing location of the black king
-     * @param returnBothTeams whether the method should return both teams' castling rights
-     * @return the FEN notation of castling rights ["K" for white's kingside castling rights, "Q" for white's queenside castling rights, "k" for black's kingside castling rights, "q" for black's queenside castling rights], e.g. "KQkq" or "Kkq"
+     * Method that adds the legal moves of one generation stage to the move list, see {@link StagedMoveGenerator}.
+     * The capture stage contains the captures, promotions and en passant, the quiet stage the rest of the moves including castling.
+     * When the king is in check, only the evasions are generated, see {@link #addEvasionMoves(Team, Board, LegalMoveMasks, int, long, MoveList)}.
+     * @param team the team to generate the moves for
+     * @param board the board where the pieces move
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param stages the stages to generate, {@link #GENERATE_CAPTURES}, {@link #GENERATE_QUIET_MOVES} or both
+     * @param fromSquares bitboard of the squares whose pieces the moves are generated for
+     * @param moveList the list the moves are added to
      */
-    public static String isCastlingPossible(Team team, Piece[] pieces, Board board, BoardLocation whiteKing, BoardLocation blackKing, boolean returnBothTeams) {
-        StringBuilder castlingAvailability = new StringBuilder();
-        if (whiteKing == null || blackKing == null) return "";
-
-        boolean whiteKingMoved;
-        boolean whiteKingRookMoved;
-        boolean whiteQueenRookMoved;
-        if (board == null) {
-            whiteKingMoved = whiteKing.equals(new BoardLocation(4, 0))
-                    && pieces[4] != null
-                    && pieces[4].type == PieceType.KING
-                    && !pieces[4].hasMoved;
-            whiteKingRookMoved = pieces[7] != null
-                    && pieces[7].type == PieceType.ROOK
-                    && !pieces[7].hasMoved;
-            whiteQueenRookMoved = pieces[0] != null
-                    && pieces[0].type == PieceType.ROOK
-                    && !pieces[0].hasMoved;
-        } else {
-            whiteKingMoved = !board.whiteKingMoves.getValue()
-                    && pieces[4] != null
-                    && pieces[4].type == PieceType.KING;
-            whiteKingRookMoved = !board.whiteKingRookMoves.getValue()
-                    && pieces[7] != null
-                    && pieces[7].type == PieceType.ROOK;
-            whiteQueenRookMoved = !board.whiteQueenRookMoves.getValue()
-                    && pieces[0] != null
-                    && pieces[0].type == PieceType.ROOK;
-        }
-
-        boolean blackKingMoved;
-        boolean blackKingRookMoved;
-        boolean blackQueenRookMoved;
-        if (board == null) {
-            blackKingMoved = blackKing.equals(new BoardLocation(4, 7))
-                    && pieces[4 + 7 * 8] != null
-                    && pieces[4 + 7 * 8].type == PieceType.KING
-                    && !pieces[4 + 7 * 8].hasMoved;
-            blackKingRookMoved = pieces[7 + 7 * 8] != null
-                    && pieces[7 + 7 * 8].type == PieceType.ROOK
-                    && !pieces[7 + 7 * 8].hasMoved;
-            blackQueenRookMoved = pieces[7 * 8] != null
-                    && pieces[7 * 8].type == PieceType.ROOK
-                    && !pieces[7 * 8].hasMoved;
-        } else {
-            blackKingMoved = !board.blackKingMoves.getValue()
-                    && pieces[4 + 7 * 8] != null
-                    && pieces[4 + 7 * 8].type == PieceType.KING;
-            blackKingRookMoved = !board.blackKingRookMoves.getValue()
-                    && pieces[7 + 7 * 8] != null
-                    && pieces[7 + 7 * 8].type == PieceType.ROOK;
-            blackQueenRookMoved = !board.blackQueenRookMoves.getValue()
-                    && pieces[7 * 8] != null
-                    && pieces[7 * 8].type == PieceType.ROOK;
+    static void addLegalMoves(Team team, Board board, LegalMoveMasks legalMoveMasks, int stages, long fromSquares, MoveList moveList) {
+        if (legalMoveMasks.getCheckers() != 0) {
+            addEvasionMoves(team, board, legalMoveMasks, stages, fromSquares, moveList);
+            return;
         }
 
-        if (whiteKingMoved) {
-            if (whiteKingRookMoved && !castlingNotAvailable[0]) {
-                castlingAvailability.append("K");
-            }
-            if (whiteQueenRookMoved && !castlingNotAvailable[1]) {
-                castlingAvailability.append("Q");
-            }
-        }
-        if (!returnBothTeams) {
-            if (team == Team.WHITE) return castlingAvailability.toString();
-            castlingAvailability = new StringBuilder();
-        }
-        if (blackKingMoved) {
-            if (blackKingRookMoved && !castlingNotAvailable[2]) {
-                castlingAvailability.append("k");
-            }
-            if (blackQueenRookMoved && !castlingNotAvailable[3]) {
-                castlingAvailability.append("q");
+        Bitboard bitboard = board.bitboard;
+        long targetSquares = getTargetSquares(team, bitboard, stages);
+        addKingMoves(team, board, legalMoveMasks, stages, fromSquares, targetSquares, moveList);
+        addPawnMoves(team, board, legalMoveMasks, stages, fromSquares, moveList);
+
+        long occupied = bitboard.getOccupied();
+        for (PieceType type : PIECE_TYPES_WITH_ATTACK_TABLES) {
+            long pieces = bitboard.getBitboard(team, type) & fromSquares;
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long targets = getPieceAttacks(type, from, occupied) & targetSquares & legalMoveMasks.getAllowedTargets(from);
+                while (targets != 0) {
+                    moveList.add(PackedMove.encode(from, Long.numberOfTrailingZeros(targets)));
+                    targets &= targets - 1;
+                }
             }
         }
-        return castlingAvailability.toString();
     }
 
     /**
-     * Method that removes pseudo-legal moves (e.g. moves through pins to the king)
-     * @param legalMoves piece's legal moves
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team which team the piece is
+     * Method that adds the legal moves of a team whose king is in check.
+     * Only king escapes, captures of the checking piece and interpositions on the check ray are generated, in double check only king escapes.
+     * The pieces that can capture or block are looked up as the attackers of the checking piece and of the squares on the check ray,
+     * so the pieces that can't resolve the check are never looked at.
+     * Like in {@link #addLegalMoves(Team, Board, LegalMoveMasks, int, long, MoveList)}, captures, promotions and en passant belong to the capture stage.
+     * @param team the team whose king is in check
      * @param board the board where the pieces move
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param stages the stages to generate, {@link #GENERATE_CAPTURES}, {@link #GENERATE_QUIET_MOVES} or both
+     * @param fromSquares bitboard of the squares whose pieces the moves are generated for
+     * @param moveList the list the moves are added to
      */
-    private static void removePseudoLegalMoves(List<Move> legalMoves, BoardLocation selectedPieceLocation, Team team, Board board) {
-        for (int i = 0; i < legalMoves.size(); i++) {
-            BoardLocation move = legalMoves.get(i).getTo();
-
-            board.movePieceWithoutSpecialMovesAndSave(selectedPieceLocation, move);
-
-            if (isKingInCheck(team, board)) {
-                legalMoves.remove(i);
-                i--;
+    static void addEvasionMoves(Team team, Board board, LegalMoveMasks legalMoveMasks, int stages, long fromSquares, MoveList moveList) {
+        Bitboard bitboard = board.bitboard;
+        addKingMoves(team, board, legalMoveMasks, stages, fromSquares, getTargetSquares(team, bitboard, stages), moveList);
+        long checkers = legalMoveMasks.getCheckers();
+        // In double check, only the king can move
+        if (Long.bitCount(checkers) > 1) return;
+
+        int checkerSquare = Long.numberOfTrailingZeros(checkers);
+        long occupied = bitboard.getOccupied();
+        long pawns = bitboard.getBitboard(team, PieceType.PAWN);
+        long pieces = fromSquares & ~bitboard.getBitboard(team, PieceType.KING);
+        boolean generateCaptures = (stages & GENERATE_CAPTURES) != 0;
+        boolean generateQuietMoves = (stages & GENERATE_QUIET_MOVES) != 0;
+
+        if (generateCaptures) {
+            long capturers = getAttackersTo(checkerSquare, team, occupied, board) & pieces;
+            while (capturers != 0) {
+                int from = Long.numberOfTrailingZeros(capturers);
+                capturers &= capturers - 1;
+                if ((legalMoveMasks.getAllowedTargets(from) & checkers) == 0) continue;
+                if ((pawns & Bitboard.getSquareBitboard(from)) != 0) {
+                    addPawnMove(from, checkerSquare, moveList);
+                } else {
+                    moveList.add(PackedMove.encode(from, checkerSquare));
+                }
             }
 
-            board.undoLastMove();
+            // En passant can capture a checking pawn or block a check discovered by the pawn that moved two squares
+            int enPassantSquare = board.getEnPassantSquare();
+            if (enPassantSquare >= 0) {
+                long enPassantPawns = LeapingPieceAttacks.getPawnAttacks(team == Team.WHITE ? Team.BLACK : Team.WHITE, enPassantSquare) & pawns & pieces;
+                while (enPassantPawns != 0) {
+                    addEnPassantMoves(team, board, Long.numberOfTrailingZeros(enPassantPawns), legalMoveMasks, moveList);
+                    enPassantPawns &= enPassantPawns - 1;
+                }
+            }
         }
-    }
 
-    /**
-     * Method that returns legal moves for a given queen
-     * @param legalQueenMoves list that the method will update
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the queen is
-     * @param board the board where the pieces move
-     * @param ignoreFriendlyPieces whether the queen can move through and capture friendly pieces
-     * @return list of legal queen moves
-     */
-    private static List<Move> getValidQueenMoves(List<Move> legalQueenMoves, BoardLocation selectedPieceLocation, Team team, Board board, boolean ignoreFriendlyPieces) {
-        for (int xDir = -1; xDir <= 1; xDir++) {
-            for (int yDir = -1; yDir <= 1; yDir++) {
-                if (xDir == 0 && yDir == 0) {
-                    continue;
+        // Interpositions, the squares between the king and a sliding piece are empty
+        long blockSquares = SlidingPieceAttacks.getSquaresBetween(legalMoveMasks.getKingSquare(), checkerSquare);
+        int forward = (team == playerTeam) ? 8 : -8;
+        int startingRank = (team == playerTeam) ? 1 : 6;
+        int promotionRank = (team == playerTeam) ? 7 : 0;
+        while (blockSquares != 0) {
+            int to = Long.numberOfTrailingZeros(blockSquares);
+            blockSquares &= blockSquares - 1;
+
+            if (generateQuietMoves) {
+                long blockers = getAttackersTo(to, team, occupied, board) & pieces & ~pawns;
+                while (blockers != 0) {
+                    int from = Long.numberOfTrailingZeros(blockers);
+                    blockers &= blockers - 1;
+                    if ((legalMoveMasks.getAllowedTargets(from) & Bitboard.getSquareBitboard(to)) != 0) {
+                        moveList.add(PackedMove.encode(from, to));
+                    }
+                }
+            }
+
+            // Pawns block by moving forward, one square or two from the starting rank over an empty square
+            int from = to - forward;
+            if (from < 0 || from >= 64) continue;
+            boolean isPromotion = to / 8 == promotionRank;
+            if ((pawns & pieces & Bitboard.getSquareBitboard(from)) != 0) {
+                if ((isPromotion ? generateCaptures : generateQuietMoves)
+                        && (legalMoveMasks.getAllowedTargets(from) & Bitboard.getSquareBitboard(to)) != 0) {
+                    addPawnMove(from, to, moveList);
+                }
+            } else if (generateQuietMoves && (occupied & Bitboard.getSquareBitboard(from)) == 0) {
+                from -= forward;
+                if (from >= 0 && from < 64 && from / 8 == startingRank
+                        && (pawns & pieces & Bitboard.getSquareBitboard(from)) != 0
+                        && (legalMoveMasks.getAllowedTargets(from) & Bitboard.getSquareBitboard(to)) != 0) {
+                    moveList.add(PackedMove.encode(from, to));
                 }
-                pieceDirections(legalQueenMoves, selectedPieceLocation, team, board, xDir, yDir, ignoreFriendlyPieces);
             }
         }
-        return legalQueenMoves;
     }
 
     /**
-     * Transposes the selected piece's location on the board along the specified direction (xDir, yDir).
-     * The transposition is repeated until it encounters the boundary of the board or a blocking piece.
-     *
-     * @param boardLocations the list of all valid board locations
-     * @param selectedPieceLocation to location of the piece on the board
-     * @param team what team the piece is
-     * @param board the board where the piece move
-     * @param xDir The direction to move along the x-axis (horizontal direction).
-     * @param yDir The direction to move along the y-axis (vertical direction).
-     * @param ignoreFriendlyPieces If true, ignore friendly pieces while transposing; otherwise, consider them as blocking pieces.
+     * Method that returns the squares the pieces of a team can move to in the given stages
+     * @param team the team to generate the moves for
+     * @param bitboard the bitboards of the board
+     * @param stages the stages to generate
+     * @return bitboard of the enemy pieces for the capture stage and of the empty squares for the quiet stage
      */
-    private static void pieceDirections(List<Move> boardLocations, BoardLocation selectedPieceLocation, Team team, Board board, int xDir, int yDir, boolean ignoreFriendlyPieces) {
-        BoardLocation move = selectedPieceLocation;
-        do {
-            move = move.transpose(xDir, yDir);
-        } while (checkIfInBounds(boardLocations, team, board, selectedPieceLocation, move, ignoreFriendlyPieces));
+    private static long getTargetSquares(Team team, Bitboard bitboard, int stages) {
+        long targetSquares = 0L;
+        if ((stages & GENERATE_CAPTURES) != 0) targetSquares |= bitboard.getTeamBitboard(team == Team.WHITE ? Team.BLACK : Team.WHITE);
+        if ((stages & GENERATE_QUIET_MOVES) != 0) targetSquares |= bitboard.getEmpty();
+        return targetSquares;
     }
 
     /**
-     * Returns valid moves for a given knight
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the knight is
+     * Method that checks whether a packed move is one of the legal moves of a team, by generating only the moves of the moved piece.
+     * @param team the team to move
      * @param board the board where the pieces move
-     * @param ignoreFriendlyPieces whether the knight can move through and capture friendly pieces
-     * @return list of legal knight moves
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param packedMove the packed move to check
+     * @return true if the move is legal in the current position, false otherwise
      */
-    private static List<Move> getValidKnightMoves(BoardLocation selectedPieceLocation, Team team, Board board, boolean ignoreFriendlyPieces) {
-        List<Move> legalKnightMoves = new ArrayList<>();
-        for (int direction = 0; direction < 2; direction++) {
-            for (int longDir = -2; longDir <= 2; longDir += 4) {
-                for (int shortDir = -1; shortDir <= 1; shortDir += 2) {
-                    BoardLocation to;
-                    if (direction == 0) {
-                        to = selectedPieceLocation.transpose(longDir, shortDir);
-                    } else {
-                        to = selectedPieceLocation.transpose(shortDir, longDir);
-                    }
-                    Piece target = board.getPiece(to);
-                    if (board.isInBounds(to) && ((target == null || target.team != team) || ignoreFriendlyPieces)) {
-                        Move move = new Move(selectedPieceLocation, to, board.getPiece(selectedPieceLocation), target);
-                        legalKnightMoves.add(move);
-                    }
-                }
-            }
+    static boolean isLegalMove(Team team, Board board, LegalMoveMasks legalMoveMasks, int packedMove) {
+        int from = PackedMove.getFrom(packedMove);
+        Piece piece = board.pieces[from];
+        if (piece == null || piece.team != team) return false;
+
+        MoveList moveList = new MoveList(MAX_MOVES_OF_PIECE);
+        addLegalMoves(team, board, legalMoveMasks, GENERATE_ALL_MOVES, Bitboard.getSquareBitboard(from), moveList);
+        for (int i = 0; i < moveList.size(); i++) {
+            if (moveList.get(i) == packedMove) return true;
         }
-        return legalKnightMoves;
+        return false;
     }
 
     /**
-     * Returns valid moves for a given king
-     * @param legalKingMoves list the method will update
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the king is
+     * Method that checks whether a single move is legal without generating the moves of the whole team.
+     * Knight, bishop, rook, queen and normal king moves are checked directly against the attack tables and the check and pin masks,
+     * only pawn and castling moves are generated, and only for the moved piece.
+     * The promotion piece and move flag of the move are ignored, so moves entered by the player can be checked before they are completed.
      * @param board the board where the pieces move
-     * @param addCastlingMoves whether it should check for castling moves
-     * @return list of legal king moves
+     * @param move the move to check, the piece on its starting square is the one that moves
+     * @return true if the move is legal in the current position, false otherwise
      */
-    private static List<Move> getValidKingMoves(List<Move> legalKingMoves, BoardLocation selectedPieceLocation, Team team, Board board, boolean addCastlingMoves, boolean ignoreFriendlyPieces) {
-        for (int xDir = -1; xDir <= 1; xDir++) {
-            for (int yDir = -1; yDir <= 1; yDir++) {
-                if (xDir == 0 && yDir == 0) {
-                    continue;
-                }
-                BoardLocation move = selectedPieceLocation.transpose(xDir, yDir);
-                Piece target = board.getPiece(move);
-                if (board.isInBounds(move) && ((target == null || target.team != team) || ignoreFriendlyPieces)) {
-                    legalKingMoves.add(new Move(selectedPieceLocation, move, board.getPiece(selectedPieceLocation), target));
-                }
+    public static boolean isLegal(Board board, Move move) {
+        if (move.getFrom() == null || move.getTo() == null || !board.isInBounds(move.getFrom()) || !board.isInBounds(move.getTo())) return false;
+        int from = board.getArrayIndexFromLocation(move.getFrom());
+        int to = board.getArrayIndexFromLocation(move.getTo());
+        Piece piece = board.pieces[from];
+        if (piece == null || (move.getMovedPiece() != null && !move.getMovedPiece().equals(piece))) return false;
+
+        Team team = piece.team;
+        long toBit = Bitboard.getSquareBitboard(to);
+        if ((board.bitboard.getTeamBitboard(team) & toBit) != 0) return false;
+        LegalMoveMasks legalMoveMasks = new LegalMoveMasks(team, board);
 
-                // Check if castling moves are valid
-                if (addCastlingMoves) {
-                    legalKingMoves.addAll(getValidCastlingMoves(selectedPieceLocation, team, board, xDir, yDir));
+        switch (piece.type) {
+            case KNIGHT, BISHOP, ROOK, QUEEN -> {
+                // In double check, only the king can move
+                if (Long.bitCount(legalMoveMasks.getCheckers()) > 1) return false;
+                return (getPieceAttacks(piece.type, from, board.bitboard.getOccupied()) & legalMoveMasks.getAllowedTargets(from) & toBit) != 0;
+            }
+            case KING -> {
+                if ((LeapingPieceAttacks.getKingAttacks(from) & toBit) != 0) {
+                    return from != legalMoveMasks.getKingSquare() || legalMoveMasks.isKingMoveLegal(to, board);
                 }
+                if (Math.abs(to - from) != 2) return false;
             }
         }
-        return legalKingMoves;
+
+        // Pawn moves and castling have too many special cases, so the moves of the piece are generated
+        MoveList moveList = new MoveList(MAX_MOVES_OF_PIECE);
+        addLegalMoves(team, board, legalMoveMasks, GENERATE_ALL_MOVES, Bitboard.getSquareBitboard(from), moveList);
+        for (int i = 0; i < moveList.size(); i++) {
+            if (PackedMove.getTo(moveList.get(i)) == to) return true;
+        }
+        return false;
     }
 
     /**
-     * Method returning all valid castling moves for a team
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the method will check castling for
-     * @param board the board where the pieces move
-     * @param xDir The direction to move along the x-axis (horizontal direction).
-     * @param yDir The direction to move along the y-axis (vertical direction).
-     * @return list of valid castling moves for the given team
+     * Method that returns the squares attacked by a knight, bishop, rook, queen or king
+     * @param type the type of the piece
+     * @param square index of the square the piece is on (0-63)
+     * @param occupied bitboard of the occupied squares
+     * @return bitboard of the attacked squares
      */
-    public static List<Move> getValidCastlingMoves(BoardLocation selectedPieceLocation, Team team, Board board, int xDir, int yDir) {
-        List<Move> legalKingMoves = new ArrayList<>();
-        String teamCastle = isCastlingPossible(team, board.pieces, board, board.whiteKingLocation, board.blackKingLocation, false);
-        // Kingside Castling
-        List<Move> kingsideCastling = checkKingsideCastling(selectedPieceLocation, team, board, xDir, yDir, legalKingMoves, teamCastle);
-        if (kingsideCastling != null) return kingsideCastling;
-        // Queenside Castling
-        List<Move> queensideCastling = checkQueensideCastling(selectedPieceLocation, team, board, xDir, yDir, legalKingMoves, teamCastle);
-        if (queensideCastling != null) return queensideCastling;
-        return legalKingMoves;
+    static long getPieceAttacks(PieceType type, int square, long occupied) {
+        return switch (type) {
+            case KNIGHT -> LeapingPieceAttacks.getKnightAttacks(square);
+            case KING -> LeapingPieceAttacks.getKingAttacks(square);
+            case BISHOP -> SlidingPieceAttacks.getBishopAttacks(square, occupied);
+            case ROOK -> SlidingPieceAttacks.getRookAttacks(square, occupied);
+            case QUEEN -> SlidingPieceAttacks.getQueenAttacks(square, occupied);
+            default -> 0L;
+        };
     }
 
     /**
-     * Method that will add queenside castling moves if it's legal
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the king is
+     * Method that adds the legal king moves of a team, including castling, to the move list
+     * @param team the team of the king
      * @param board the board where the pieces move
-     * @param xDir The direction to move along the x-axis (horizontal direction).
-     * @param yDir The direction to move along the y-axis (vertical direction).
-     * @param legalKingMoves list the method will add the castling moves to
-     * @param fen the FEN string used to determine whether castling is legal
-     * @return returns all king moves that include queenside castling if it's legal
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param stages the generated stages, castling is a quiet move
+     * @param fromSquares bitboard of the squares whose pieces the moves are generated for
+     * @param targetSquares bitboard of the squares the pieces can move to in the generated stages
+     * @param moveList the list the moves are added to
      */
-    private static List<Move> checkQueensideCastling(BoardLocation selectedPieceLocation, Team team, Board board, int xDir, int yDir, List<Move> legalKingMoves, String fen) {
-        if (xDir == -1 && yDir == 0 && selectedPieceLocation.equals(team == Team.WHITE ? new BoardLocation(4, 0) : new BoardLocation(4, 7)))  {
-            if (isSquareAttackedByEnemy(selectedPieceLocation.transpose(xDir, yDir), team, board)
-                    || isSquareAttackedByEnemy(selectedPieceLocation.transpose(xDir - 1, yDir), team, board))
-                return new ArrayList<>();
-            if (board.getPiece(selectedPieceLocation.transpose(xDir, yDir)) != null
-                    || board.getPiece(selectedPieceLocation.transpose(xDir - 1, yDir)) != null
-                    || board.getPiece(selectedPieceLocation.transpose(xDir - 2, yDir)) != null) {
-                return new ArrayList<>();
-            }
-            if (isKingInCheck(team, board)) {
-                return new ArrayList<>();
-            }
-
-            if ((fen.contains("Q") && team == Team.WHITE) || (fen.contains("q") && team == Team.BLACK)) {
-                BoardLocation castleMove = selectedPieceLocation.transpose(xDir - 1, yDir);
-                Piece castleTarget = board.getPiece(castleMove);
-                if (board.isInBounds(castleMove) && (castleTarget == null || castleTarget.team != team)) {
-                    var move = new Move(selectedPieceLocation, castleMove, board.getPiece(selectedPieceLocation));
-                    move.setMoveFlag(MoveFlag.queensideCastling);
-                    legalKingMoves.add(move);
-                }
+    private static void addKingMoves(Team team, Board board, LegalMoveMasks legalMoveMasks, int stages, long fromSquares, long targetSquares, MoveList moveList) {
+        if (!legalMoveMasks.hasKing()) return;
+        int kingSquare = legalMoveMasks.getKingSquare();
+        if ((fromSquares & Bitboard.getSquareBitboard(kingSquare)) == 0) return;
+
+        long targets = LeapingPieceAttacks.getKingAttacks(kingSquare) & targetSquares;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (legalMoveMasks.isKingMoveLegal(to, board)) {
+                moveList.add(PackedMove.encode(kingSquare, to));
             }
         }
-        return null;
+
+        if (legalMoveMasks.getCheckers() != 0 || (stages & GENERATE_QUIET_MOVES) == 0) return;
+        addCastlingMoves(team, board, kingSquare, moveList);
     }
 
     /**
-     * Method that will add kingside castling moves if it's legal
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the king is
+     * Method that adds the legal castling moves of a team to the move list.
+     * Castling is legal when the board still has the castling right, the squares between the king and the rook are empty,
+     * and none of the squares the king starts on, passes through or lands on is attacked.
+     * @param team the team of the king
      * @param board the board where the pieces move
-     * @param xDir The direction to move along the x-axis (horizontal direction).
-     * @param yDir The direction to move along the y-axis (vertical direction).
-     * @param legalKingMoves list the method will add the castling moves to
-     * @param fen the FEN string used to determine whether castling is legal
-     * @return returns all king moves that include kingside castling if it's legal
+     * @param kingSquare index of the square the king is on (0-63)
+     * @param moveList the list the moves are added to
      */
-    public static List<Move> checkKingsideCastling(BoardLocation selectedPieceLocation, Team team, Board board, int xDir, int yDir, List<Move> legalKingMoves, String fen) {
-        if (xDir == 1 && yDir == 0 && selectedPieceLocation.equals(team == Team.WHITE ? board.whiteKingLocation : board.blackKingLocation))  {
-            if (isSquareAttackedByEnemy(selectedPieceLocation.transpose(xDir, yDir), team, board)
-                    || isSquareAttackedByEnemy(selectedPieceLocation.transpose(xDir + 1, yDir), team, board))
-                return new ArrayList<>();
-            if (board.getPiece(selectedPieceLocation.transpose(xDir, yDir)) != null
-                    || board.getPiece(selectedPieceLocation.transpose(xDir + 1, yDir)) != null)
-                return new ArrayList<>();
-            if (isKingInCheck(team, board)) {
-                return new ArrayList<>();
+    private static void addCastlingMoves(Team team, Board board, int kingSquare, MoveList moveList) {
+        int castlingRights = board.getCastlingRights();
+        if (castlingRights == 0 || kingSquare != (team == Team.WHITE ? 4 : 60)) return;
+        Team enemyTeam = team == Team.WHITE ? Team.BLACK : Team.WHITE;
+        long occupied = board.bitboard.getOccupied();
+
+        int first = team == Team.WHITE ? 0 : 2;
+        for (int i = first; i < first + 2; i++) {
+            if ((castlingRights & CASTLING_RIGHTS[i]) == 0
+                    || (occupied & CASTLING_EMPTY_SQUARES[i]) != 0) continue;
+
+            boolean isPathAttacked = false;
+            long safeSquares = CASTLING_SAFE_SQUARES[i];
+            while (safeSquares != 0 && !isPathAttacked) {
+                isPathAttacked = getAttackersTo(Long.numberOfTrailingZeros(safeSquares), enemyTeam, occupied, board) != 0;
+                safeSquares &= safeSquares - 1;
             }
-
-            if ((fen.contains("K") && team == Team.WHITE) || (fen.contains("k") && team == Team.BLACK)) {
-                BoardLocation castleMove = selectedPieceLocation.transpose(xDir + 1, yDir);
-                Piece castleTarget = board.getPiece(castleMove);
-                if (board.isInBounds(castleMove) && (castleTarget == null || castleTarget.team != team)) {
-                    var move = new Move(selectedPieceLocation, castleMove, board.getPiece(selectedPieceLocation));
-                    move.setMoveFlag(MoveFlag.kingsideCastling);
-                    legalKingMoves.add(move);
-                }
+            if (!isPathAttacked) {
+                moveList.add(PackedMove.encode(kingSquare, CASTLING_KING_DESTINATIONS[i], CASTLING_MOVE_FLAGS[i], null));
             }
         }
-        return null;
     }
 
     /**
-     * Method returning all legal moves for a given rook
-     * @param selection where the rook is located on the board
-     * @param team what team the rook is
+     * Method that adds the legal pawn moves of a team, including promotions and en passant, to the move list.
+     * Promotions without a capture belong to the capture stage, like the captures they change the material on the board.
+     * @param team the team of the pawns
      * @param board the board where the pieces move
-     * @param ignoreFriendlyPieces whether the rook can move through and capture friendly pieces
-     * @return returns list of all legal moves for a given rook
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param stages the stages to generate
+     * @param fromSquares bitboard of the squares whose pieces the moves are generated for
+     * @param moveList the list the moves are added to
      */
-    private static List<Move> getValidRookMoves(BoardLocation selection, Team team, Board board, boolean ignoreFriendlyPieces) {
-        List<Move> legalRookMoves = new ArrayList<>();
-        for (int direction = 0; direction < 2; direction++) {
-            for (int direction2 = -1; direction2 <= 1; direction2 += 2) {
-                BoardLocation move = selection;
-                do {
-                    if (direction == 0) {
-                        move = move.transpose(direction2, 0);
-                    } else {
-                        move = move.transpose(0, direction2);
-                    }
+    private static void addPawnMoves(Team team, Board board, LegalMoveMasks legalMoveMasks, int stages, long fromSquares, MoveList moveList) {
+        Bitboard bitboard = board.bitboard;
+        long empty = bitboard.getEmpty();
+        long enemyPieces = bitboard.getTeamBitboard(team == Team.WHITE ? Team.BLACK : Team.WHITE);
+        int forward = (team == playerTeam) ? 8 : -8;
+        int startingRank = (team == playerTeam) ? 1 : 6;
+        int promotionRank = (team == playerTeam) ? 7 : 0;
+        boolean generateCaptures = (stages & GENERATE_CAPTURES) != 0;
+        boolean generateQuietMoves = (stages & GENERATE_QUIET_MOVES) != 0;
+
+        long pawns = bitboard.getBitboard(team, PieceType.PAWN) & fromSquares;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowedTargets = legalMoveMasks.getAllowedTargets(from);
+
+            // Moves forward
+            int to = from + forward;
+            if (to >= 0 && to < 64 && (empty & Bitboard.getSquareBitboard(to)) != 0) {
+                boolean isPromotion = to / 8 == promotionRank;
+                if ((allowedTargets & Bitboard.getSquareBitboard(to)) != 0 && (isPromotion ? generateCaptures : generateQuietMoves)) {
+                    addPawnMove(from, to, moveList);
+                }
+                int doubleForwardSquare = to + forward;
+                if (generateQuietMoves
+                        && from / 8 == startingRank
+                        && (empty & allowedTargets & Bitboard.getSquareBitboard(doubleForwardSquare)) != 0) {
+                    moveList.add(PackedMove.encode(from, doubleForwardSquare));
+                }
+            }
+
+            if (!generateCaptures) continue;
 
-                } while (checkIfInBounds(legalRookMoves, team, board, selection, move, ignoreFriendlyPieces));
+            // Captures
+            long captures = LeapingPieceAttacks.getPawnAttacks(team, from) & enemyPieces & allowedTargets;
+            while (captures != 0) {
+                addPawnMove(from, Long.numberOfTrailingZeros(captures), moveList);
+                captures &= captures - 1;
             }
+
+            addEnPassantMoves(team, board, from, legalMoveMasks, moveList);
         }
-        return legalRookMoves;
     }
 
     /**
-     * Method that checks if a move is in bounds and adds it to the list of legal moves if it is
-     * @param legalMoves list of legal moves
-     * @param team what team the pieces are
-     * @param board the board where the pieces move
-     * @param to what move the method should check whether it's in bounds
-     * @param ignoreFriendlyPieces whether the method should allow going through or capturing friendly pieces
-     * @return true of false whether the move is in bounds.
+     * Method that adds a pawn move to the move list, once for every promotion piece if the pawn reaches the last rank
+     * @param from index of the square the pawn moves from (0-63)
+     * @param to index of the square the pawn moves to (0-63)
+     * @param moveList the list the moves are added to
      */
-    private static boolean checkIfInBounds(List<Move> legalMoves, Team team, Board board, BoardLocation from, BoardLocation to, boolean ignoreFriendlyPieces) {
-        if (!board.isInBounds(to)) {
-            return false;
-        }
-
-        Piece target = board.getPiece(to);
-
-        if (target != null) {
-            if (target.team != team || ignoreFriendlyPieces) {
-                legalMoves.add(new Move(from, to, board.getPiece(from), target));
+    private static void addPawnMove(int from, int to, MoveList moveList) {
+        if (to / 8 == 0 || to / 8 == 7) {
+            for (PieceType promotionPiece : PROMOTION_PIECES) {
+                moveList.add(PackedMove.encode(from, to, MoveFlag.none, promotionPiece));
             }
-            return false;
+        } else {
+            moveList.add(PackedMove.encode(from, to));
         }
-
-        legalMoves.add(new Move(from, to, board.getPiece(from)));
-        return true;
     }
 
-
     /**
-     * Method returning all legal moves for a given bishop
-     * @param legalBishopMoves list the method will update
-     * @param selectedPieceLocation where the piece for generating legal moves is located on the board
-     * @param team what team the bishop is
+     * Method that adds the legal en passant captures of a pawn to the move list.
+     * The pawn captured en passant is removed from the board together with the moving pawn,
+     * so the legality is verified by checking the attacks on the king with both pawns removed.
+     * @param team the team of the pawn
      * @param board the board where the pieces move
-     * @return returns a list of all legal moves for a given bishop
+     * @param from index of the square the pawn is on (0-63)
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @param moveList the list the moves are added to
      */
-    private static List<Move> getValidBishopMoves(List<Move> legalBishopMoves, BoardLocation selectedPieceLocation, Team team, Board board, boolean ignoreFriendlyPieces) {
-        for (int xDir = -1; xDir <= 1; xDir += 2) {
-            for (int yDir = -1; yDir <= 1; yDir += 2) {
-                pieceDirections(legalBishopMoves, selectedPieceLocation, team, board, xDir, yDir, ignoreFriendlyPieces);
-            }
+    private static void addEnPassantMoves(Team team, Board board, int from, LegalMoveMasks legalMoveMasks, MoveList moveList) {
+        int to = board.getEnPassantSquare();
+        if (to < 0 || from / 8 != (team == playerTeam ? 4 : 3) || Math.abs(to % 8 - from % 8) != 1) return;
+        Team enemyTeam = team == Team.WHITE ? Team.BLACK : Team.WHITE;
+
+        // The pawn that moved two squares stands next to the capturing pawn, behind the en passant square
+        int capturedSquare = from / 8 * 8 + to % 8;
+        Piece capturedPiece = board.pieces[capturedSquare];
+        if (capturedPiece == null
+                || capturedPiece.type != PieceType.PAWN
+                || capturedPiece.team == team) return;
+
+        if (legalMoveMasks.hasKing()) {
+            long capturedBit = Bitboard.getSquareBitboard(capturedSquare);
+            long occupied = (board.bitboard.getOccupied() & ~Bitboard.getSquareBitboard(from) & ~capturedBit) | Bitboard.getSquareBitboard(to);
+            if ((getAttackersTo(legalMoveMasks.getKingSquare(), enemyTeam, occupied, board) & ~capturedBit) != 0) return;
         }
-        return legalBishopMoves;
+        moveList.add(PackedMove.encode(from, to, MoveFlag.enPassant, null));
     }
 
     /**
-     * Method returning all legal moves for a given pawn
-     * @param pawnLocation where the pawn is located on the board
-     * @param team what team the pawn is
-     * @param board the board where the pieces move
-     * @param ignoreEnPassant whether the method should ignore en passant moves
-     * @return returns a list of legal moves for a given pawn
+     * Method that returns whether enemy is attacking a certain square on the board
+     * @param square what square the method should search for
+     * @param friendlyTeam friendly team
+     * @param board board where the pieces move
+     * @return true or false depending on whether enemy attacks the given square
      */
-    public static List<Move> getValidPawnMoves(BoardLocation pawnLocation, Team team, Board board, boolean ignoreEnPassant) {
-        List<Move> legalPawnMoves = new ArrayList<>();
-
-        int forwardDirection = (team == playerTeam) ? 1 : -1;
-        BoardLocation forwardPoint = new BoardLocation(pawnLocation.getX(), (pawnLocation.getY() + (forwardDirection)));
-        BoardLocation doubleForwardPoint = new BoardLocation(pawnLocation.getX(), (pawnLocation.getY() + (2 * forwardDirection)));
-
-        // Check for normal move forward
-        if (board.isInBounds(forwardPoint) && board.getPiece(forwardPoint) == null) {
-            legalPawnMoves.add(new Move(pawnLocation, forwardPoint, board.getPiece(pawnLocation)));
-            // Check for double move forward (if the pawn hasn't moved yet)
-            if (team == (playerTeam == Team.WHITE ? Team.WHITE : Team.BLACK) && pawnLocation.getY() == 1 && board.getPiece(doubleForwardPoint) == null) {
-                legalPawnMoves.add(new Move(pawnLocation, doubleForwardPoint, board.getPiece(pawnLocation)));
-            } else if (team == (playerTeam == Team.BLACK ? Team.WHITE : Team.BLACK) && pawnLocation.getY() == 6 && board.getPiece(doubleForwardPoint) == null) {
-                legalPawnMoves.add(new Move(pawnLocation, doubleForwardPoint, board.getPiece(pawnLocation)));
-            }
-        }
-
-        // Check for capture moves
-        BoardLocation leftCapture = new BoardLocation(pawnLocation.getX() - 1, pawnLocation.getY() + forwardDirection);
-        BoardLocation rightCapture = new BoardLocation(pawnLocation.getX() + 1, pawnLocation.getY() + forwardDirection);
-        legalPawnMoves.addAll(addPawnCaptureMoves(pawnLocation, team, board, leftCapture, ignoreEnPassant));
-        legalPawnMoves.addAll(addPawnCaptureMoves(pawnLocation, team, board, rightCapture, ignoreEnPassant));
-
-        return legalPawnMoves;
+    public static boolean isSquareAttackedByEnemy(BoardLocation square, Team friendlyTeam, Board board) {
+        if (!board.isInBounds(square)) return false;
+        return isSquareAttackedByEnemy(square.getIndex(), friendlyTeam, board);
     }
 
     /**
-     * Method that will add capture moves for a given pawn
-     * @param pawnLocation where the pawn is located on the board
-     * @param team what team the pawn is
-     * @param board the board where the pieces move
-     * @param captureLocation where the pawn can capture a piece
-     * @param ignoreEnPassant whether the method should ignore en passant moves
-     * @return list of legal pawn capture moves
+     * Method that returns whether enemy is attacking a certain square on the board
+     * @param square index of the square the method should search for (0-63)
+     * @param friendlyTeam friendly team
+     * @param board board where the pieces move
+     * @return true or false depending on whether enemy attacks the given square
      */
-    private static List<Move> addPawnCaptureMoves(BoardLocation pawnLocation, Team team, Board board, BoardLocation captureLocation, boolean ignoreEnPassant) {
-        List<Move> legalPawnMoves = new ArrayList<>();
-        if (board.isInBounds(captureLocation)) {
-            Piece rightCapturePiece = board.getPiece(captureLocation);
-
-            if (rightCapturePiece != null && rightCapturePiece.team != team) {
-                legalPawnMoves.add(new Move(pawnLocation, captureLocation, board.getPiece(pawnLocation), rightCapturePiece));
-            }
-
-            if (!ignoreEnPassant) {
-                legalPawnMoves.addAll(checkEnPassant(team, board, captureLocation, pawnLocation));
-            }
-        }
-        return legalPawnMoves;
+    public static boolean isSquareAttackedByEnemy(int square, Team friendlyTeam, Board board) {
+        if (!board.isInBounds(square)) return false;
+        Team enemyTeam = friendlyTeam == Team.WHITE ? Team.BLACK : Team.WHITE;
+        return getAttackersTo(square, enemyTeam, board.bitboard.getOccupied(), board) != 0;
     }
 
     /**
-     * Method that tries adding En Passant moves
-     * @param team what team the pawn is
-     * @param board the board where the pieces move
-     * @param captureMove location where the pawn can capture a piece
-     * @param pawnLocation where the pawn is located on the board
-     * @return list of legal En Passant moves
+     * Method that returns all pieces of a team attacking a certain square, without generating any moves.
+     * The occupancy is passed in separately so that the attacks can be evaluated as if some pieces weren't on the board,
+     * e.g. with the king removed when checking which squares it can escape to.
+     * @param square index of the square the method should search for (0-63)
+     * @param attackingTeam team whose attackers the method should return
+     * @param occupied bitboard of the occupied squares the sliding pieces can be blocked by
+     * @param board board where the pieces move
+     * @return bitboard of the squares of all pieces of the attacking team attacking the given square
      */
-    private static List<Move> checkEnPassant(Team team, Board board, BoardLocation captureMove, BoardLocation pawnLocation) {
-        BoardLocation leftLocation = new BoardLocation(pawnLocation.getX() - 1, pawnLocation.getY());
-        BoardLocation rightLocation = new BoardLocation(pawnLocation.getX() + 1, pawnLocation.getY());
-
-        List<Move> legalPawnMoves = new ArrayList<>();
-        legalPawnMoves.addAll(addLegalEnPassant(team, board, captureMove, pawnLocation, rightLocation, pawnLocation.getX() < captureMove.getX()));
-        legalPawnMoves.addAll(addLegalEnPassant(team, board, captureMove, pawnLocation, leftLocation, pawnLocation.getX() > captureMove.getX()));
-        return legalPawnMoves;
+    public static long getAttackersTo(int square, Team attackingTeam, long occupied, Board board) {
+        Bitboard bitboard = board.bitboard;
+        Team defendingTeam = attackingTeam == Team.WHITE ? Team.BLACK : Team.WHITE;
+        long queens = bitboard.getBitboard(attackingTeam, PieceType.QUEEN);
+
+        // Knight, king and pawn attacks are symmetric, so the attackers can be looked up from the square itself
+        return (LeapingPieceAttacks.getKnightAttacks(square) & bitboard.getBitboard(attackingTeam, PieceType.KNIGHT))
+                | (LeapingPieceAttacks.getKingAttacks(square) & bitboard.getBitboard(attackingTeam, PieceType.KING))
+                | (LeapingPieceAttacks.getPawnAttacks(defendingTeam, square) & bitboard.getBitboard(attackingTeam, PieceType.PAWN))
+                | (SlidingPieceAttacks.getBishopAttacks(square, occupied) & (bitboard.getBitboard(attackingTeam, PieceType.BISHOP) | queens))
+                | (SlidingPieceAttacks.getRookAttacks(square, occupied) & (bitboard.getBitboard(attackingTeam, PieceType.ROOK) | queens));
     }
 
     /**
-     * Method that will add En Passant moves if it's legal
-     * @param team what team the pawn is
-     * @param board the board where the pieces move
-     * @param captureMove location where the pawn can capture a piece
-     * @param pawnLocation where the pawn is located on the board
-     * @param pieceLocationNextToPawn location of the piece next to the pawn
-     * @param isDifferentFile whether the pawn location is on the same file as the location where the pawn can capture a piece
-     * @return list of legal En Passant moves
+     * Method that returns the castling rights a position can have based on its pieces,
+     * which requires the king and the rook to be on their starting squares.
+     * Whether they moved away and back is only known to the board, see {@link Board#getCastlingRights()}
+     * @param pieces array of pieces on the board
+     * @param whiteKing location of the white king
+     * @param blackKing location of the black king
+     * @return the castling rights as a 4-bit mask (see {@link Board#getCastlingRights()})
      */
-    public static List<Move> addLegalEnPassant(Team team, Board board, BoardLocation captureMove, BoardLocation pawnLocation, BoardLocation pieceLocationNextToPawn, boolean isDifferentFile) {
-        Piece pieceNextToPawn = board.getPiece(pieceLocationNextToPawn);
-        if (pieceNextToPawn != null
-                && pieceNextToPawn.type.equals(PieceType.PAWN)
-                && pieceNextToPawn.team != team
-                && (team == playerTeam ? pawnLocation.getY() == 4 : pawnLocation.getY() == 3)
-                && pieceNextToPawn.doublePawnMoveOnMoveNumber == GameState.moveNumber
-                && isDifferentFile) {
-
-
-            // Perform the en passant capture move and check if the king is in check
-            var move = new Move(pawnLocation, captureMove, board.getPiece(pawnLocation), board.getPiece(pieceLocationNextToPawn));
-            board.playEnPassant(move);
-            boolean isKingInCheck = isKingInCheck(team, board);
-            board.undoEnPassant(move);
-
-            // If the king is not in check after the en passant capture, add it to the legal moves
-            if (!isKingInCheck) {
-                return Collections.singletonList(new Move(pawnLocation, captureMove, board.getPiece(pawnLocation), board.getPiece(pieceLocationNextToPawn)));
-            }
+    public static int getCastlingRightsFromPieces(Piece[] pieces, BoardLocation whiteKing, BoardLocation blackKing) {
+        if (whiteKing == null || blackKing == null) return 0;
+
+        int castlingRights = 0;
+        if (whiteKing.equals(BoardLocation.of(4, 0)) && isPieceOfType(pieces[4], PieceType.KING)) {
+            if (isPieceOfType(pieces[7], PieceType.ROOK)) castlingRights |= Board.WHITE_KINGSIDE_CASTLING;
+            if (isPieceOfType(pieces[0], PieceType.ROOK)) castlingRights |= Board.WHITE_QUEENSIDE_CASTLING;
+        }
+        if (blackKing.equals(BoardLocation.of(4, 7)) && isPieceOfType(pieces[4 + 7 * 8], PieceType.KING)) {
+            if (isPieceOfType(pieces[7 + 7 * 8], PieceType.ROOK)) castlingRights |= Board.BLACK_KINGSIDE_CASTLING;
+            if (isPieceOfType(pieces[7 * 8], PieceType.ROOK)) castlingRights |= Board.BLACK_QUEENSIDE_CASTLING;
         }
-        return new ArrayList<>();
+        return castlingRights;
+    }
+
+    /**
+     * Method that returns whether a piece of the given type is on a square
+     * @param piece the piece on the square
+     * @param type the expected type of the piece
+     * @return true if the piece is of the given type, false otherwise
+     */
+    private static boolean isPieceOfType(Piece piece, PieceType type) {
+        return piece != null && piece.type == type;
     }
 
     /**
@@ -649,27 +554,7 @@ public class Rules {
      * @return true or false whether the team is in checkmate.
      */
     public static boolean isCheckmate(Team team, Board board) {
-        if (!isKingInCheck(team, board) || GameState.kinglessGame) {
-            return false;
-        }
-        List<Move> validMoves;
-        for (int i = 0; i < board.pieces.length; i++) {
-            BoardLocation point = board.getPointFromArrayIndex(i);
-            Piece piece = board.pieces[i];
-            if (piece != null && piece.team == team) {
-                validMoves = getValidMoves(point, piece, board, true, false, false);
-                for (Move move : validMoves) {
-                    var to = move.getTo();
-                    board.movePieceWithoutSpecialMovesAndSave(point, to);
-                    if (!isKingInCheck(team, board)) {
-                        board.undoLastMove();
-                        return false;
-                    }
-                    board.undoLastMove();
-                }
-            }
-        }
-        return true;
+        return getCheckState(team, board) == CheckState.CHECKMATE;
     }
 
     /**
@@ -679,21 +564,63 @@ public class Rules {
      * @return true or false whether the team is in stalemate.
      */
     public static boolean isStalemate(Team team, Board board) {
-        if (isKingInCheck(team, board) || GameState.kinglessGame) {
-            return false;
+        return getCheckState(team, board) == CheckState.STALEMATE;
+    }
+
+    /**
+     * Method that classifies the position of a team as check, checkmate, stalemate or none of them in a single pass.
+     * The checks are found once and the legal moves are only searched until the first one is found.
+     * A team without a king (e.g. in a kingless training game) is never in check, so its games never end.
+     * @param team the team to check for.
+     * @param board the board where the pieces move.
+     * @return the check state of the team.
+     */
+    public static CheckState getCheckState(Team team, Board board) {
+        if (!board.hasKing(team)) {
+            return CheckState.NONE;
         }
-        List<Move> validMoves;
-        for (int i = 0; i < board.pieces.length; i++) {
-            BoardLocation point = board.getPointFromArrayIndex(i);
-            Piece piece = board.pieces[i];
-            if (piece != null && piece.team == team) {
-                validMoves = getValidMoves(point, piece, board, false);
-                if (!validMoves.isEmpty()) {
-                    return false;
-                }
-            }
+        LegalMoveMasks legalMoveMasks = new LegalMoveMasks(team, board);
+        boolean isInCheck = legalMoveMasks.getCheckers() != 0;
+        if (hasAnyLegalMove(team, board, legalMoveMasks)) {
+            return isInCheck ? CheckState.CHECK : CheckState.NONE;
+        }
+        return isInCheck ? CheckState.CHECKMATE : CheckState.STALEMATE;
+    }
+
+    /**
+     * Method that checks whether a team has at least one legal move, returning as soon as one is found.
+     * @param team the team to check for.
+     * @param board the board where the pieces move.
+     * @return true or false whether the team has a legal move.
+     */
+    public static boolean hasAnyLegalMove(Team team, Board board) {
+        return hasAnyLegalMove(team, board, new LegalMoveMasks(team, board));
+    }
+
+    /**
+     * Method that checks whether a team has at least one legal move, generating the moves one piece at a time.
+     * In check, the few evasions are generated at once instead.
+     * @param team the team to check for.
+     * @param board the board where the pieces move.
+     * @param legalMoveMasks checks and pins of the team in the current position
+     * @return true or false whether the team has a legal move.
+     */
+    private static boolean hasAnyLegalMove(Team team, Board board, LegalMoveMasks legalMoveMasks) {
+        if (legalMoveMasks.getCheckers() != 0) {
+            MoveList moveList = new MoveList();
+            addEvasionMoves(team, board, legalMoveMasks, GENERATE_ALL_MOVES, ~0L, moveList);
+            return !moveList.isEmpty();
         }
-        return true;
+
+        MoveList moveList = new MoveList(MAX_MOVES_OF_PIECE);
+        long pieces = board.bitboard.getTeamBitboard(team);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addLegalMoves(team, board, legalMoveMasks, GENERATE_ALL_MOVES, Bitboard.getSquareBitboard(square), moveList);
+            if (!moveList.isEmpty()) return true;
+        }
+        return false;
     }
 
     /**
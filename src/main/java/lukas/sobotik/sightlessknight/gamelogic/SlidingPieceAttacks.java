@@ -0,0 +1,223 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed attack tables for the sliding pieces (rooks, bishops and queens) based on magic bitboards.
+ * For every square, the occupancy of the squares that can block the piece is mapped to an index into a table
+ * of attack bitboards by a multiplication with a "magic" number, so looking up the attacks of a sliding piece
+ * only costs a couple of bit operations and one array access.
+ * The magic numbers are searched for once when the class is loaded, using a fixed seed so the tables are always the same.
+ */
+public final class SlidingPieceAttacks {
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final long MAGIC_SEED = 0x5EED_C4E55L;
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    private static final long[][] SQUARES_BETWEEN = new long[64][64];
+
+    static {
+        SplittableRandom random = new SplittableRandom(MAGIC_SEED);
+        for (int square = 0; square < 64; square++) {
+            initializeSquare(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_ATTACKS, random);
+            initializeSquare(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_ATTACKS, random);
+            initializeSquaresBetween(square, ROOK_DIRECTIONS);
+            initializeSquaresBetween(square, BISHOP_DIRECTIONS);
+        }
+    }
+
+    private SlidingPieceAttacks() {
+
+    }
+
+    /**
+     * Returns the squares attacked by a rook on the given square.
+     * The first blocking piece in every direction is included in the attacks, regardless of its team.
+     *
+     * @param square the index of the square the rook is on (0-63)
+     * @param occupied the bitboard of all occupied squares
+     * @return the bitboard of the attacked squares
+     */
+    public static long getRookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Returns the squares attacked by a bishop on the given square.
+     * The first blocking piece in every direction is included in the attacks, regardless of its team.
+     *
+     * @param square the index of the square the bishop is on (0-63)
+     * @param occupied the bitboard of all occupied squares
+     * @return the bitboard of the attacked squares
+     */
+    public static long getBishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Returns the squares attacked by a queen on the given square.
+     * The first blocking piece in every direction is included in the attacks, regardless of its team.
+     *
+     * @param square the index of the square the queen is on (0-63)
+     * @param occupied the bitboard of all occupied squares
+     * @return the bitboard of the attacked squares
+     */
+    public static long getQueenAttacks(int square, long occupied) {
+        return getRookAttacks(square, occupied) | getBishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares strictly between the two given squares, if they are on the same rank, file or diagonal.
+     * Used for finding the squares where a check by a sliding piece can be blocked and where a pinned piece can move.
+     *
+     * @param from the index of the first square (0-63)
+     * @param to the index of the second square (0-63)
+     * @return the bitboard of the squares between, or 0 if the squares aren't on the same line or are adjacent
+     */
+    public static long getSquaresBetween(int from, int to) {
+        return SQUARES_BETWEEN[from][to];
+    }
+
+    /**
+     * Fills the table of squares between the given square and every square in the given directions.
+     *
+     * @param square the index of the square (0-63)
+     * @param directions the directions to walk in
+     */
+    private static void initializeSquaresBetween(int square, int[][] directions) {
+        for (int[] direction : directions) {
+            long between = 0L;
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (isInBounds(x, y)) {
+                SQUARES_BETWEEN[square][x + y * 8] = between;
+                between |= 1L << (x + y * 8);
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+    }
+
+    /**
+     * Computes the relevant occupancy mask, finds a magic number and fills the attack table for one square.
+     *
+     * @param square the index of the square (0-63)
+     * @param directions the directions the piece slides in
+     * @param masks the table of relevant occupancy masks to fill
+     * @param magics the table of magic numbers to fill
+     * @param shifts the table of index shifts to fill
+     * @param attacks the table of attack bitboards to fill
+     * @param random the random generator used to search for the magic number
+     */
+    private static void initializeSquare(int square, int[][] directions, long[] masks, long[] magics, int[] shifts, long[][] attacks, SplittableRandom random) {
+        long mask = getRelevantOccupancyMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+
+        // Enumerate every subset of the mask together with the attacks it produces
+        long[] occupancies = new long[size];
+        long[] referenceAttacks = new long[size];
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            referenceAttacks[i] = getSlidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] usedInAttempt = new int[size];
+        int attempt = 0;
+        while (true) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if (Long.bitCount((mask * magic) & 0xFF00_0000_0000_0000L) < 6) continue;
+
+            attempt++;
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (usedInAttempt[index] != attempt) {
+                    usedInAttempt[index] = attempt;
+                    table[index] = referenceAttacks[i];
+                } else if (table[index] != referenceAttacks[i]) {
+                    collision = true;
+                }
+            }
+
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                attacks[square] = table;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the squares whose occupancy can block a sliding piece on the given square.
+     * The last square in every direction is excluded, because a piece there can't block anything behind it.
+     *
+     * @param square the index of the square (0-63)
+     * @param directions the directions the piece slides in
+     * @return the relevant occupancy mask
+     */
+    private static long getRelevantOccupancyMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (isInBounds(x + direction[0], y + direction[1])) {
+                mask |= 1L << (x + y * 8);
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks the rays from the given square one step at a time and returns the attacked squares.
+     * Only used for building the tables.
+     *
+     * @param square the index of the square (0-63)
+     * @param occupied the bitboard of all occupied squares
+     * @param directions the directions the piece slides in
+     * @return the bitboard of the attacked squares
+     */
+    private static long getSlidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int x = square % 8 + direction[0];
+            int y = square / 8 + direction[1];
+            while (isInBounds(x, y)) {
+                long squareMask = 1L << (x + y * 8);
+                attacks |= squareMask;
+                if ((occupied & squareMask) != 0) break;
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Checks if the given coordinates are on the board.
+     *
+     * @param x the x coordinate (file)
+     * @param y the y coordinate (rank)
+     * @return true if the coordinates are on the board, false otherwise
+     */
+    private static boolean isInBounds(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8;
+    }
+}
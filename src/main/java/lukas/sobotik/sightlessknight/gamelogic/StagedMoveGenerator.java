@@ -0,0 +1,113 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+/**
+ * Generates the legal moves of a position lazily, one stage at a time.
+ * The hash move (e.g. the best move of a previous search) is returned first if it's legal,
+ * then the captures and promotions, then the quiet moves. A stage is only generated once the moves
+ * of the previous stages have been returned, so a caller that stops early never pays for the later stages.
+ * <p>
+ * The generator is bound to one board and can be reused for different positions with {@link #reset(Team, int)},
+ * so a search can keep one generator per ply. The board must not change while the moves are iterated,
+ * moves have to be unmade before the next one is requested.
+ */
+public class StagedMoveGenerator {
+    private static final int STAGE_HASH_MOVE = 0;
+    private static final int STAGE_CAPTURES = 1;
+    private static final int STAGE_QUIET_MOVES = 2;
+    private static final int STAGE_DONE = 3;
+
+    private final Board board;
+    private final MoveList moveList = new MoveList();
+    private Team team;
+    private int hashMove;
+    private LegalMoveMasks legalMoveMasks;
+    private int stage;
+    private int index;
+
+    /**
+     * Creates a generator for the moves of a team without a hash move.
+     *
+     * @param team the team to generate the moves for
+     * @param board the board where the pieces move
+     */
+    public StagedMoveGenerator(Team team, Board board) {
+        this(team, board, PackedMove.NO_MOVE);
+    }
+
+    /**
+     * Creates a generator for the moves of a team.
+     *
+     * @param team the team to generate the moves for
+     * @param board the board where the pieces move
+     * @param hashMove the packed move to return first, or {@link PackedMove#NO_MOVE}
+     */
+    public StagedMoveGenerator(Team team, Board board, int hashMove) {
+        this.board = board;
+        reset(team, hashMove);
+    }
+
+    /**
+     * Starts generating the moves of the current position of the board again.
+     *
+     * @param team the team to generate the moves for
+     * @param hashMove the packed move to return first, or {@link PackedMove#NO_MOVE}
+     */
+    public void reset(Team team, int hashMove) {
+        this.team = team;
+        this.hashMove = hashMove;
+        legalMoveMasks = null;
+        stage = STAGE_HASH_MOVE;
+        index = 0;
+        moveList.clear();
+    }
+
+    /**
+     * Returns the next legal move, generating the next stage when the current one is exhausted.
+     * The hash move is never returned twice.
+     *
+     * @return the next packed move, or {@link PackedMove#NO_MOVE} if there are no more moves
+     */
+    public int next() {
+        while (true) {
+            while (index < moveList.size()) {
+                int packedMove = moveList.get(index++);
+                if (packedMove != hashMove) return packedMove;
+            }
+
+            switch (stage) {
+                case STAGE_HASH_MOVE -> {
+                    // Checks and pins are needed by every stage, so they are computed only once per position
+                    legalMoveMasks = new LegalMoveMasks(team, board);
+                    stage = STAGE_CAPTURES;
+                    if (hashMove != PackedMove.NO_MOVE && Rules.isLegalMove(team, board, legalMoveMasks, hashMove)) {
+                        return hashMove;
+                    }
+                }
+                case STAGE_CAPTURES -> {
+                    generateStage(Rules.GENERATE_CAPTURES);
+                    stage = STAGE_QUIET_MOVES;
+                }
+                case STAGE_QUIET_MOVES -> {
+                    generateStage(Rules.GENERATE_QUIET_MOVES);
+                    stage = STAGE_DONE;
+                }
+                default -> {
+                    return PackedMove.NO_MOVE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the returned moves with the moves of the given stage.
+     *
+     * @param stages the stage to generate
+     */
+    private void generateStage(int stages) {
+        moveList.clear();
+        index = 0;
+        Rules.addLegalMoves(team, board, legalMoveMasks, stages, ~0L, moveList);
+    }
+}
@@ -0,0 +1,107 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of chess positions.
+ * The key of a position is the XOR of the keys of every piece on its square, the side to move,
+ * the castling rights and the file of the en passant square, so it can be updated incrementally
+ * by XOR-ing out the keys of what changed and XOR-ing in the new ones.
+ * The keys are generated from a fixed seed, so the same position always has the same key.
+ */
+public final class Zobrist {
+    private static final long ZOBRIST_SEED = 0x2B0B_1575_EEDL;
+
+    private static final long[][] PIECE_KEYS = new long[Team.values().length * PieceType.values().length][64];
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+    private static final long SIDE_TO_MOVE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        for (long[] squareKeys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                squareKeys[square] = random.nextLong();
+            }
+        }
+        // No castling rights contribute nothing, so that a position without any rights has the same key as before they were lost
+        for (int castlingRights = 1; castlingRights < CASTLING_KEYS.length; castlingRights++) {
+            CASTLING_KEYS[castlingRights] = random.nextLong();
+        }
+        for (int file = 0; file < EN_PASSANT_KEYS.length; file++) {
+            EN_PASSANT_KEYS[file] = random.nextLong();
+        }
+        SIDE_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+
+    }
+
+    /**
+     * Returns the key of a piece on a square.
+     *
+     * @param team the team of the piece
+     * @param type the type of the piece
+     * @param square the index of the square (0-63)
+     * @return the key of the piece on the square
+     */
+    public static long getPieceKey(Team team, PieceType type, int square) {
+        return PIECE_KEYS[Bitboard.getBitboardIndex(team, type)][square];
+    }
+
+    /**
+     * Returns the key that is XOR-ed into the position key when black is to move.
+     *
+     * @return the side to move key
+     */
+    public static long getSideToMoveKey() {
+        return SIDE_TO_MOVE_KEY;
+    }
+
+    /**
+     * Returns the key of the given castling rights.
+     *
+     * @param castlingRights the castling rights as a 4-bit mask (see {@link Board#getCastlingRights()})
+     * @return the key of the castling rights
+     */
+    public static long getCastlingKey(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    /**
+     * Returns the key of the en passant file.
+     *
+     * @param file the file of the en passant square (0-7), or -1 if en passant isn't possible
+     * @return the key of the en passant file, or 0 if there is none
+     */
+    public static long getEnPassantKey(int file) {
+        return file < 0 ? 0L : EN_PASSANT_KEYS[file];
+    }
+
+    /**
+     * Computes the key of a position from scratch.
+     *
+     * @param pieces the array of pieces representing the chess board
+     * @param sideToMove the team whose turn it is
+     * @param castlingRights the castling rights as a 4-bit mask
+     * @param enPassantFile the file of the en passant square (0-7), or -1 if en passant isn't possible
+     * @return the key of the position
+     */
+    public static long computeKey(Piece[] pieces, Team sideToMove, int castlingRights, int enPassantFile) {
+        long key = 0L;
+        for (int square = 0; square < pieces.length; square++) {
+            Piece piece = pieces[square];
+            if (piece != null) {
+                key ^= getPieceKey(piece.team, piece.type, square);
+            }
+        }
+        if (sideToMove == Team.BLACK) {
+            key ^= SIDE_TO_MOVE_KEY;
+        }
+        return key ^ getCastlingKey(castlingRights) ^ getEnPassantKey(enPassantFile);
+    }
+}
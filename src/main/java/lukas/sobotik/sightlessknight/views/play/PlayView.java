@@ -28,15 +28,19 @@ import lukas.sobotik.sightlessknight.gamelogic.BoardLocation;
 import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
 import lukas.sobotik.sightlessknight.gamelogic.GameState;
 import lukas.sobotik.sightlessknight.gamelogic.Move;
+import lukas.sobotik.sightlessknight.gamelogic.PackedMove;
 import lukas.sobotik.sightlessknight.gamelogic.Piece;
 import lukas.sobotik.sightlessknight.gamelogic.Rules;
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
 import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 import lukas.sobotik.sightlessknight.views.HomeView;
 import lukas.sobotik.sightlessknight.views.MainLayout;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 @PageTitle("Play")
@@ -46,7 +50,6 @@ public class PlayView extends VerticalLayout {
     AlgebraicNotationUtils algebraicNotationUtils;
     public GameState gameState;
     Board board;
-    List<Move> validMovesForPosition;
 
     // Piece Game
     BoardLocation targetSquare = null;
@@ -55,7 +58,7 @@ public class PlayView extends VerticalLayout {
     Piece trainingPiece = null;
 
     Piece pieceForKinglessGames = null;
-    HorizontalLayout gameContentLayout, targetSquareLayout, gameLayout;
+    HorizontalLayout gameContentLayout, targetSquareLayout, perftStatusLayout, gameLayout;
     VerticalLayout algebraicNotationHistoryLayout, gameInfoLayout, quickSettingsLayout;
     Dialog quickSettingsDialog;
     Checkbox showBoardButton, showPiecesButton;
@@ -74,11 +77,11 @@ public class PlayView extends VerticalLayout {
         Piece[] pieces;
         Piece piece = null;
         switch (s) {
-            case "knight" -> piece = new Piece(Team.WHITE, PieceType.KNIGHT);
-            case "bishop" -> piece = new Piece(Team.WHITE, PieceType.BISHOP);
-            case "rook" -> piece = new Piece(Team.WHITE, PieceType.ROOK);
-            case "queen" -> piece = new Piece(Team.WHITE, PieceType.QUEEN);
-            case "king" -> piece = new Piece(Team.WHITE, PieceType.KING);
+            case "knight" -> piece = Piece.of(Team.WHITE, PieceType.KNIGHT);
+            case "bishop" -> piece = Piece.of(Team.WHITE, PieceType.BISHOP);
+            case "rook" -> piece = Piece.of(Team.WHITE, PieceType.ROOK);
+            case "queen" -> piece = Piece.of(Team.WHITE, PieceType.QUEEN);
+            case "king" -> piece = Piece.of(Team.WHITE, PieceType.KING);
         }
 
         if (piece != null) {
@@ -133,7 +136,6 @@ public class PlayView extends VerticalLayout {
         gameState = new GameState(board, fenUtils.getStartingTeam(), kinglessGame);
         algebraicNotationUtils = new AlgebraicNotationUtils(fenUtils, gameState, board);
         algebraicNotationUtils.setKinglessGame(kinglessGame);
-        validMovesForPosition = Rules.getAllValidMovesForTeam(GameState.currentTurn, board, true);
 
         gameContentLayout = new HorizontalLayout();
         gameContentLayout.addClassName("game_content_layout");
@@ -176,6 +178,12 @@ public class PlayView extends VerticalLayout {
         targetSquareLayout.addClassName("game_info_layout_child");
         gameInfoLayout.add(targetSquareLayout);
 
+        perftStatusLayout = new HorizontalLayout();
+        perftStatusLayout.setVisible(false);
+        perftStatusLayout.setWidthFull();
+        perftStatusLayout.addClassName("game_info_layout_child");
+        gameInfoLayout.add(perftStatusLayout);
+
         algebraicNotationHistoryLayout = new VerticalLayout();
         algebraicNotationHistoryLayout.addClassName("move_history");
         algebraicNotationHistoryLayout.addClassName("game_info_layout_child");
@@ -443,14 +451,13 @@ public class PlayView extends VerticalLayout {
         updateGameStateAndBoard(move);
         checkIfGameEnded();
 
-        if (GameState.isPawnPromotionPending) {
+        if (gameState.isPawnPromotionPending) {
             handlePawnPromotion(move);
         } else {
             getAlgebraicNotation();
         }
 
         managePieceMoveDrills();
-        updateValidMovesList();
     }
 
     /**
@@ -472,19 +479,7 @@ public class PlayView extends VerticalLayout {
      * @return if the move is valid
      */
     public boolean isMoveValid(Move move) {
-        for (Move validMove : validMovesForPosition) {
-            if (move.equals(validMove)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Method that updates the valid moves list for the current position.
-     */
-    public void updateValidMovesList() {
-        validMovesForPosition = Rules.getAllValidMovesForTeam(GameState.currentTurn, board, true);
+        return Rules.isLegal(board, move) && board.getPiece(move.getFrom()).team == gameState.currentTurn;
     }
 
     /**
@@ -531,12 +526,11 @@ public class PlayView extends VerticalLayout {
      * @return The initialized pawn promotion button.
      */
     private Image initializePawnPromotionButton(String imagePath, String pieceString, PieceType pieceType, Move move, Dialog dialog) {
-        Image button = new Image("images/sprites/" + ((GameState.currentTurn == Team.WHITE ? "w" : "b") + imagePath), pieceString);
+        Image button = new Image("images/sprites/" + ((gameState.currentTurn == Team.WHITE ? "w" : "b") + imagePath), pieceString);
         button.addClickListener(view -> {
-            gameState.movePieceAndEndTurn(GameState.promotionLocation);
+            gameState.movePieceAndEndTurn(gameState.promotionLocation);
             gameState.promotePawn(pieceType);
-            move.getMovedPiece().promotion = pieceType;
-            board.getPiece(move.getTo()).promotion = pieceType;
+            move.setPromotionPiece(pieceType);
             gameState.createParsedMoveHistory(move);
             getAlgebraicNotation();
             dialog.close();
@@ -602,16 +596,17 @@ public class PlayView extends VerticalLayout {
      */
     private void checkIfGameEnded() {
         if (gameState.hasGameEnded) {
-            if (Rules.isStalemate(GameState.currentTurn, board) && !GameState.isPawnPromotionPending) {
+            CheckState checkState = gameState.positionAnalysis.getCheckState(gameState.currentTurn, board);
+            if (checkState == CheckState.STALEMATE && !gameState.isPawnPromotionPending) {
                 Notification.show("Game Over!");
                 VerticalLayout dialogLayout = new VerticalLayout();
                 Text dialogText = new Text("Game Drawn by Stalemate");
                 createGameOverDialog(dialogLayout, dialogText);
             }
-            if (Rules.isCheckmate(GameState.currentTurn, board)) {
+            if (checkState == CheckState.CHECKMATE) {
                 Notification.show("Game Over!");
                 VerticalLayout dialogLayout = new VerticalLayout();
-                Text dialogText = new Text((GameState.currentTurn == Team.WHITE ? "Black" : "White") + " Won by Checkmate");
+                Text dialogText = new Text((gameState.currentTurn == Team.WHITE ? "Black" : "White") + " Won by Checkmate");
                 createGameOverDialog(dialogLayout, dialogText);
             }
         }
@@ -631,7 +626,8 @@ public class PlayView extends VerticalLayout {
         newGameButton.addClickListener(view -> {
             board.resetBoardPosition(STARTING_POSITION);
             gameState.resetHistory();
-            GameState.moveNumber = 0;
+            gameState.currentTurn = fenUtils.getStartingTeam();
+            gameState.moveNumber = 0;
             gameState.hasGameEnded = false;
             dialog.close();
             createBoard(board.pieces);
@@ -697,7 +693,7 @@ public class PlayView extends VerticalLayout {
                     }));
 
                     AtomicReference<BoardLocation> toLocation = new AtomicReference<>(null);
-                    if ((piece == null || piece.team != GameState.currentTurn) && selectedSquare.get() != null) {
+                    if ((piece == null || piece.team != gameState.currentTurn) && selectedSquare.get() != null) {
                         square.getClassNames().forEach(className -> {
                             if (className.contains("-")) {
                                 var coordinates = className.split("-");
@@ -709,7 +705,7 @@ public class PlayView extends VerticalLayout {
                     }
 
                     // Remove all previously selected squares
-                    if (piece != null && (piece.team == GameState.currentTurn || GameState.kinglessGame)) {
+                    if (piece != null && (piece.team == gameState.currentTurn || gameState.kinglessGame)) {
                         finalBoardLayout.getChildren().forEach(component -> component.getChildren()
                                 .forEach(componentRow -> componentRow.getClassNames().remove("selected")));
                     } else {
@@ -717,6 +713,7 @@ public class PlayView extends VerticalLayout {
                     }
 
                     square.addClassName("selected");
+                    highlightLegalMoves(finalBoardLayout, piece.team, index);
                 });
                 if (piece == null) {
                     cellValue = "";
@@ -753,6 +750,25 @@ public class PlayView extends VerticalLayout {
         }
     }
 
+    /**
+     * Method that highlights the squares the selected piece can move to, and removes the highlight from all other squares.
+     * @param boardLayout the layout with the squares of the board
+     * @param team the team of the selected piece
+     * @param from index of the square of the selected piece
+     */
+    private void highlightLegalMoves(VerticalLayout boardLayout, Team team, int from) {
+        Set<String> targetSquares = new HashSet<>();
+        for (int legalMove : gameState.positionAnalysis.getLegalMoves(team, board)) {
+            if (PackedMove.getFrom(legalMove) == from) {
+                BoardLocation to = board.getPointFromArrayIndex(PackedMove.getTo(legalMove));
+                targetSquares.add(to.getX() + "-" + to.getY());
+            }
+        }
+
+        boardLayout.getChildren().forEach(row -> row.getChildren().forEach(square ->
+                square.getClassNames().set("highlighted", square.getId().map(targetSquares::contains).orElse(false))));
+    }
+
     /**
      * Find the board layout in the game content layout.
      * @return The board layout.
@@ -876,6 +892,20 @@ public class PlayView extends VerticalLayout {
         targetSquareLayout.add(paragraph);
     }
 
+    /**
+     * Display the status of the Perft Function started by the /perft command.
+     * @param s The status to be displayed, or null to hide the status.
+     */
+    public void showPerftStatus(String s) {
+        perftStatusLayout.removeAll();
+        perftStatusLayout.setVisible(s != null);
+        if (s == null) return;
+        var paragraph = new Paragraph(s);
+        paragraph.setWidthFull();
+        paragraph.addClassName("perft_status");
+        perftStatusLayout.add(paragraph);
+    }
+
     /**
      * Generates a random square within a given distance from a given square.
      * The generated square will be different from the given square.
@@ -1,11 +1,12 @@
 import lukas.sobotik.sightlessknight.ai.PerftFunction;
+import lukas.sobotik.sightlessknight.ai.PerftTable;
 import lukas.sobotik.sightlessknight.gamelogic.Board;
 import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
 import lukas.sobotik.sightlessknight.gamelogic.GameState;
 import lukas.sobotik.sightlessknight.gamelogic.Piece;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -39,8 +40,21 @@ public class PerftTest {
 
     @ParameterizedTest
     @MethodSource("allDepthsSuite")
-    @Disabled
-    public void allDepths(String fen, int depth, double expectedPositions) {
+    public void allDepths(String fen, int depth, long expectedPositions) {
+        assertParallelPositions(fen, depth, expectedPositions);
+    }
+
+    /**
+     * The depths with billions of positions, they are run only with the slow-tests profile (mvn -Pslow-tests test).
+     */
+    @ParameterizedTest
+    @MethodSource("slowDepthsSuite")
+    @Tag("slow")
+    public void slowDepths(String fen, int depth, long expectedPositions) {
+        assertParallelPositions(fen, depth, expectedPositions);
+    }
+
+    private void assertParallelPositions(String fen, int depth, long expectedPositions) {
         // Set up the position based on the given FEN
         Piece[] pieces = new Piece[64];
         FenUtils fenUtils = new FenUtils(pieces);
@@ -49,11 +63,11 @@ public class PerftTest {
         GameState gameState = new GameState(board, fenUtils.getStartingTeam(), false);
         PerftFunction perftFunction = new PerftFunction(board, gameState, null);
 
-        double actualPositions = perftFunction.playMoves(depth, fenUtils.getStartingTeam(), false, false, true);
+        long actualPositions = perftFunction.playMovesParallel(depth, fenUtils.getStartingTeam(), false);
         assertEquals(expectedPositions, actualPositions,
                 "Name: " + getPositionNameFromFen(fen)
                         + ", FEN: " + fen
-                        + ", Move " + GameState.moveNumber
+                        + ", Move " + gameState.moveNumber
                         + ", Depth " + depth + " positions mismatch.");
     }
 
@@ -87,55 +101,64 @@ public class PerftTest {
                 Arguments.of(castling, 2, 568),
                 Arguments.of(castling, 3, 13744),
                 Arguments.of(castling, 4, 314346),
-//                Arguments.of(castling, 5, 7594526),
-//                Arguments.of(castling, 6, 179862938),
+                Arguments.of(castling, 5, 7594526),
+                Arguments.of(castling, 6, 179862938),
 
                 Arguments.of(startingPosition, 1, 20),
                 Arguments.of(startingPosition, 2, 400),
                 Arguments.of(startingPosition, 3, 8902),
                 Arguments.of(startingPosition, 4, 197281),
-//                Arguments.of(startingPosition, 5, 4865609),
-//                Arguments.of(startingPosition, 6, 119060324),
+                Arguments.of(startingPosition, 5, 4865609),
+                Arguments.of(startingPosition, 6, 119060324),
 
                 Arguments.of(testPos2, 1, 48),
                 Arguments.of(testPos2, 2, 2039),
                 Arguments.of(testPos2, 3, 97862),
                 Arguments.of(testPos2, 4, 4085603),
-//                Arguments.of(testPos2, 5, 193690690),
-//                Arguments.of(testPos2, 6, 8031647685),
+                Arguments.of(testPos2, 5, 193690690),
 
                 Arguments.of(testPos3, 1, 14),
                 Arguments.of(testPos3, 2, 191),
                 Arguments.of(testPos3, 3, 2812),
                 Arguments.of(testPos3, 4, 43238),
-//                Arguments.of(testPos3, 5, 674624),
-//                Arguments.of(testPos3, 6, 11030083),
+                Arguments.of(testPos3, 5, 674624),
+                Arguments.of(testPos3, 6, 11030083),
 
                 Arguments.of(testPos4, 1, 6),
                 Arguments.of(testPos4, 2, 264),
                 Arguments.of(testPos4, 3, 9467),
                 Arguments.of(testPos4, 4, 422333),
-//                Arguments.of(testPos4, 5, 15833292),
-//                Arguments.of(testPos4, 6, 706045033),
+                Arguments.of(testPos4, 5, 15833292),
 
                 Arguments.of(testPos5, 1, 44),
                 Arguments.of(testPos5, 2, 1486),
                 Arguments.of(testPos5, 3, 62379),
                 Arguments.of(testPos5, 4, 2103487),
-//                Arguments.of(testPos5, 5, 89941194),
+                Arguments.of(testPos5, 5, 89941194),
 
                 Arguments.of(testPos6, 1, 46),
                 Arguments.of(testPos6, 2, 2079),
                 Arguments.of(testPos6, 3, 89890),
-                Arguments.of(testPos6, 4, 3894594)
-//                Arguments.of(testPos6, 5, 164075551),
-//                Arguments.of(testPos6, 6, 6923051137)
+                Arguments.of(testPos6, 4, 3894594),
+                Arguments.of(testPos6, 5, 164075551)
+        );
+    }
+
+    private static Stream<Arguments> slowDepthsSuite() {
+        var testPos2 = positionMap.get("testPos2");
+        var testPos4 = positionMap.get("testPos4");
+        var testPos6 = positionMap.get("testPos6");
+
+        return Stream.of(
+                Arguments.of(testPos2, 6, 8031647685L),
+                Arguments.of(testPos4, 6, 706045033),
+                Arguments.of(testPos6, 6, 6923051137L)
         );
     }
 
     @ParameterizedTest
     @MethodSource("shortSuite")
-    public void shortSuite(String fen, int depth, double expectedPositions) {
+    public void shortSuite(String fen, int depth, long expectedPositions) {
         // Set up the position based on the given FEN
         Piece[] pieces = new Piece[64];
         FenUtils fenUtils = new FenUtils(pieces);
@@ -144,11 +167,11 @@ public class PerftTest {
         GameState gameState = new GameState(board, fenUtils.getStartingTeam(), false);
         PerftFunction perftFunction = new PerftFunction(board, gameState, null);
 
-        double actualPositions = perftFunction.playMoves(depth, fenUtils.getStartingTeam(), false, false, true);
+        long actualPositions = perftFunction.playMoves(depth, fenUtils.getStartingTeam(), false, false, true);
         assertEquals(expectedPositions, actualPositions,
                      "Name: " + getPositionNameFromFen(fen)
                              + ", FEN: " + fen
-                             + ", Move " + GameState.moveNumber
+                             + ", Move " + gameState.moveNumber
                              + ", Depth " + depth + " positions mismatch.");
     }
 
@@ -178,6 +201,82 @@ public class PerftTest {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("parallelSuite")
+    public void parallelSuite(String fen, int depth, long expectedPositions) {
+        // Set up the position based on the given FEN
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(64, pieces, fenUtils);
+        GameState gameState = new GameState(board, fenUtils.getStartingTeam(), false);
+        PerftFunction perftFunction = new PerftFunction(board, gameState, null);
+
+        long actualPositions = perftFunction.playMovesParallel(depth, fenUtils.getStartingTeam(), false);
+        assertEquals(expectedPositions, actualPositions,
+                     "Name: " + getPositionNameFromFen(fen)
+                             + ", FEN: " + fen
+                             + ", Depth " + depth + " positions mismatch.");
+    }
+
+    private static Stream<Arguments> parallelSuite() {
+        var enPassantWhite = positionMap.get("enPassantWhite");
+        var castling = positionMap.get("castling");
+        var startingPosition = positionMap.get("startingPosition");
+        var testPos3 = positionMap.get("testPos3");
+        var testPos5 = positionMap.get("testPos5");
+
+        return Stream.of(
+                Arguments.of(enPassantWhite, 6, 21270),
+                Arguments.of(castling, 4, 314346),
+                Arguments.of(startingPosition, 1, 20),
+                Arguments.of(startingPosition, 5, 4_865_609),
+                Arguments.of(testPos3, 5, 674624),
+                Arguments.of(testPos5, 4, 2_103_487)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("hashedSuite")
+    public void hashedSuite(String fen, int depth, long expectedPositions) {
+        // Set up the position based on the given FEN
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(64, pieces, fenUtils);
+        GameState gameState = new GameState(board, fenUtils.getStartingTeam(), false);
+        PerftTable perftTable = new PerftTable(16);
+
+        // Sequentially and in parallel, the second run sharing the table with the first one
+        PerftFunction perftFunction = new PerftFunction(board, gameState, null, perftTable);
+        assertEquals(expectedPositions, perftFunction.playMoves(depth, fenUtils.getStartingTeam(), false, false, true),
+                     "Name: " + getPositionNameFromFen(fen) + ", Depth " + depth + " positions mismatch.");
+        assertEquals(expectedPositions, perftFunction.playMovesParallel(depth, fenUtils.getStartingTeam(), false),
+                     "Name: " + getPositionNameFromFen(fen) + ", Depth " + depth + " parallel positions mismatch.");
+        assertEquals(expectedPositions, new PerftFunction(board, gameState, null, new PerftTable(16)).playMovesParallel(depth, fenUtils.getStartingTeam(), false),
+                     "Name: " + getPositionNameFromFen(fen) + ", Depth " + depth + " parallel positions mismatch.");
+    }
+
+    private static Stream<Arguments> hashedSuite() {
+        var enPassantWhite = positionMap.get("enPassantWhite");
+        var castling = positionMap.get("castling");
+        var startingPosition = positionMap.get("startingPosition");
+        var testPos2 = positionMap.get("testPos2");
+        var testPos3 = positionMap.get("testPos3");
+        var testPos4 = positionMap.get("testPos4");
+        var testPos5 = positionMap.get("testPos5");
+
+        return Stream.of(
+                Arguments.of(enPassantWhite, 6, 21270),
+                Arguments.of(castling, 4, 314346),
+                Arguments.of(startingPosition, 5, 4_865_609),
+                Arguments.of(testPos2, 4, 4_085_603),
+                Arguments.of(testPos3, 6, 11_030_083),
+                Arguments.of(testPos4, 5, 15_833_292),
+                Arguments.of(testPos5, 4, 2_103_487)
+        );
+    }
+
     public String getPositionNameFromFen(String fen) {
         for (var entry : positionMap.entrySet()) {
             if (Objects.equals(entry.getValue(), fen)) {
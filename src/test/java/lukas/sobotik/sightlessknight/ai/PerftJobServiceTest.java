@@ -0,0 +1,136 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import lukas.sobotik.sightlessknight.gamelogic.Board;
+import lukas.sobotik.sightlessknight.gamelogic.FenUtils;
+import lukas.sobotik.sightlessknight.gamelogic.Piece;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerftJobServiceTest {
+    private static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    PerftJobService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) service.shutdown();
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForSubmit")
+    void submit(String fen, int depth, long expectedPositions) throws InterruptedException {
+        service = new PerftJobService(2, 1, 1, 60_000, 10, 1);
+        FenUtils fenUtils = new FenUtils(new Piece[64]);
+        Board board = createBoard(fenUtils, fen);
+        long zobristKey = board.getZobristKey();
+
+        FinishListener listener = new FinishListener();
+        PerftJob job = service.submit("session", board, Team.WHITE, depth, listener);
+        assertTrue(listener.finished.await(60, TimeUnit.SECONDS));
+
+        assertEquals(PerftJob.State.FINISHED, job.getState());
+        assertEquals(expectedPositions, job.getPositions());
+        long positions = 0;
+        for (long movePositions : job.getResult().values()) {
+            positions += movePositions;
+        }
+        assertEquals(expectedPositions, positions);
+        assertEquals(0, job.getEstimatedRemainingMillis());
+        assertEquals(zobristKey, board.getZobristKey());
+        assertTrue(service.getRunningJobs("session").isEmpty());
+    }
+
+    private static Stream<Arguments> provideTestCasesForSubmit() {
+        return Stream.of(
+                Arguments.of(STARTING_POSITION, 1, 20L),
+                Arguments.of(STARTING_POSITION, 4, 197281L),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 97862L),
+                Arguments.of("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674624L)
+        );
+    }
+
+    @Test
+    void quotasAndCancel() throws InterruptedException {
+        service = new PerftJobService(1, 2, 1, 60_000, 10, 0);
+        FenUtils fenUtils = new FenUtils(new Piece[64]);
+        Board board = createBoard(fenUtils, STARTING_POSITION);
+
+        FinishListener firstListener = new FinishListener();
+        FinishListener secondListener = new FinishListener();
+        PerftJob firstJob = service.submit("first", board, Team.WHITE, 8, firstListener);
+        assertThrows(RejectedExecutionException.class, () -> service.submit("first", board, Team.WHITE, 8, new FinishListener()));
+        PerftJob secondJob = service.submit("second", board, Team.WHITE, 8, secondListener);
+        assertThrows(RejectedExecutionException.class, () -> service.submit("third", board, Team.WHITE, 8, new FinishListener()));
+
+        assertEquals(1, service.cancel("first"));
+        assertTrue(firstListener.finished.await(60, TimeUnit.SECONDS));
+        assertEquals(PerftJob.State.CANCELLED, firstJob.getState());
+        assertEquals(PerftJob.State.RUNNING, secondJob.getState());
+
+        FinishListener thirdListener = new FinishListener();
+        PerftJob thirdJob = service.submit("first", board, Team.WHITE, 2, thirdListener);
+        assertEquals(1, service.cancel("second"));
+        assertTrue(secondListener.finished.await(60, TimeUnit.SECONDS));
+        assertTrue(thirdListener.finished.await(60, TimeUnit.SECONDS));
+        assertEquals(PerftJob.State.CANCELLED, secondJob.getState());
+        assertEquals(PerftJob.State.FINISHED, thirdJob.getState());
+        assertEquals(400, thirdJob.getPositions());
+        assertEquals(0, service.cancel("second"));
+    }
+
+    @Test
+    void timeLimit() throws InterruptedException {
+        service = new PerftJobService(1, 1, 1, 50, 10, 0);
+        FenUtils fenUtils = new FenUtils(new Piece[64]);
+        Board board = createBoard(fenUtils, STARTING_POSITION);
+
+        FinishListener listener = new FinishListener();
+        PerftJob job = service.submit("session", board, Team.WHITE, 8, listener);
+        assertTrue(listener.finished.await(60, TimeUnit.SECONDS));
+        assertEquals(PerftJob.State.CANCELLED, job.getState());
+    }
+
+    @Test
+    void submitAfterShutdown() {
+        service = new PerftJobService(1, 1, 1, 60_000, 10, 0);
+        FenUtils fenUtils = new FenUtils(new Piece[64]);
+        Board board = createBoard(fenUtils, STARTING_POSITION);
+
+        // A job that can't be started doesn't keep its slot
+        service.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> service.submit("session", board, Team.WHITE, 2, new FinishListener()));
+        assertTrue(service.getRunningJobs("session").isEmpty());
+    }
+
+    private static Board createBoard(FenUtils fenUtils, String fen) {
+        Piece[] pieces = fenUtils.generatePositionFromFEN(fen);
+        return new Board(8, pieces, fenUtils);
+    }
+
+    private static class FinishListener implements PerftJob.Listener {
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        @Override
+        public void onProgress(PerftJob job) {
+
+        }
+
+        @Override
+        public void onFinished(PerftJob job) {
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package lukas.sobotik.sightlessknight.ai;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerftRunnerTest {
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForParse")
+    void parse(String line, String expectedFen, int depth, int expectedDepth) {
+        PerftRunner.EpdEntry entry = PerftRunner.EpdEntry.parse(line);
+        assertEquals(expectedFen, entry.fen);
+        assertEquals(expectedDepth, entry.getDepth(depth));
+    }
+
+    private static Stream<Arguments> provideTestCasesForParse() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400 ;D3 8902", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -", 2, 2),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - ;D1 20 ;D2 400 ;D3 8902", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq -", 5, 3),
+                Arguments.of("8/2p5/8/1P6/8/8/8/K1k5 b - - ;D2 16", "8/2p5/8/1P6/8/8/8/K1k5 b - -", 1, 1),
+                Arguments.of("8/2p5/8/1P6/8/8/8/K1k5 b - -", "8/2p5/8/1P6/8/8/8/K1k5 b - -", 4, 4)
+        );
+    }
+
+    @Test
+    void parseInvalidOperation() {
+        assertThrows(IllegalArgumentException.class, () -> PerftRunner.EpdEntry.parse("8/8/8/8/8/8/8/K1k5 w - - ;D1 three"));
+        assertThrows(IllegalArgumentException.class, () -> PerftRunner.EpdEntry.parse("8/8/8/8/8/8/8/K1k5 w - - ;bm Kb2"));
+    }
+
+    @Test
+    void run() {
+        List<PerftRunner.EpdEntry> entries = List.of(
+                PerftRunner.EpdEntry.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - ;D1 26 ;D2 568 ;D3 13744"),
+                PerftRunner.EpdEntry.parse("K1k5/8/8/8/2p5/8/1P6/8 w - - ;D1 3 ;D2 14 ;D3 53"));
+        assertTrue(PerftRunner.run(entries, 3, 1, 0));
+        assertTrue(PerftRunner.run(entries, 3, 2, 1));
+        assertFalse(PerftRunner.run(List.of(PerftRunner.EpdEntry.parse("K1k5/8/8/8/2p5/8/1P6/8 w - - ;D2 15")), 2, 1, 0));
+    }
+}
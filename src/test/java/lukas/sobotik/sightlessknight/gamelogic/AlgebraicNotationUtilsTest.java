@@ -1,5 +1,6 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -12,21 +13,21 @@ class AlgebraicNotationUtilsTest {
 
     @ParameterizedTest
     @MethodSource("testPositionsProvider")
-    void testGetMoveFromParsedMove(String fen, String parsedMove, BoardLocation expectedFrom, BoardLocation expectedTo, boolean enPassant) {
+    void testGetMoveFromParsedMove(String fen, String parsedMove, BoardLocation expectedFrom, BoardLocation expectedTo) {
         Piece[] pieces = new Piece[64];
         FenUtils fenUtils = new FenUtils(pieces);
         pieces = fenUtils.generatePositionFromFEN(fen);
         Board board = new Board(64, pieces, fenUtils);
-        if (enPassant) {
-            board.getPiece(expectedTo.transpose(0, -1)).doublePawnMoveOnMoveNumber = 0;
-        }
 
         GameState gameState = new GameState(board, fenUtils.getStartingTeam(), false);
 
         AlgebraicNotationUtils algebraicNotationUtils = new AlgebraicNotationUtils(fenUtils, gameState, board);
 
         Move returnedMove = algebraicNotationUtils.getMoveFromParsedMove(parsedMove);
-        var expectedMove = new Move(expectedFrom, expectedTo, board.getPiece(expectedFrom), board.getPiece(expectedTo.transpose(0, enPassant ? -1 : 0)));
+        // An en passant capture to the en passant square of the FEN takes the pawn next to the moved pawn
+        boolean isEnPassant = board.getPiece(expectedFrom).type == PieceType.PAWN && board.getArrayIndexFromLocation(expectedTo) == board.getEnPassantSquare();
+        BoardLocation capturedLocation = isEnPassant ? BoardLocation.of(expectedTo.getX(), expectedFrom.getY()) : expectedTo;
+        var expectedMove = new Move(expectedFrom, expectedTo, board.getPiece(expectedFrom), board.getPiece(capturedLocation));
 
         assertEquals(returnedMove.getFrom(), expectedMove.getFrom(),
                 "from " + returnedMove.getFrom().getAlgebraicNotationLocation()
@@ -59,20 +60,20 @@ class AlgebraicNotationUtilsTest {
     private static Stream<Arguments> testPositionsProvider() {
          return Stream.of(
                  // Pawn moves
-                 Arguments.of("8/8/8/1Pp5/8/8/8/5k1K w - - 0 1", "bxc6 e.p", new BoardLocation(1, 4), new BoardLocation(2, 5), true),
-                 Arguments.of("5K1k/8/8/8/8/3p4/2P5/8 w - - 0 1", "cxd3", new BoardLocation(2, 1), new BoardLocation(3, 2), false),
-                 Arguments.of("5K1k/8/8/8/8/3p4/2P5/8 w - - 0 1", "c3", new BoardLocation(2, 1), new BoardLocation(2, 2), false),
-                 Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e4", new BoardLocation(4, 1), new BoardLocation(4, 3), false),
+                 Arguments.of("8/8/8/1Pp5/8/8/8/5k1K w - c6 0 1", "bxc6 e.p", new BoardLocation(1, 4), new BoardLocation(2, 5)),
+                 Arguments.of("5K1k/8/8/8/8/3p4/2P5/8 w - - 0 1", "cxd3", new BoardLocation(2, 1), new BoardLocation(3, 2)),
+                 Arguments.of("5K1k/8/8/8/8/3p4/2P5/8 w - - 0 1", "c3", new BoardLocation(2, 1), new BoardLocation(2, 2)),
+                 Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e4", new BoardLocation(4, 1), new BoardLocation(4, 3)),
                  // Move Disambiguation
-                 Arguments.of("rnbqkbnr/pppppppp/8/2N5/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "N5xe4", new BoardLocation(2, 4), new BoardLocation(4, 3), false),
-                 Arguments.of("rnbqkbnr/pppppppp/8/2N5/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "N3xe4", new BoardLocation(2, 2), new BoardLocation(4, 3), false),
-                 Arguments.of("rnbqkbnr/pppppppp/8/6N1/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "Ngxe4", new BoardLocation(6, 4), new BoardLocation(4, 3), false),
-                 Arguments.of("rnbqkbnr/pppppppp/8/6N1/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "Ncxe4", new BoardLocation(2, 2), new BoardLocation(4, 3), false),
+                 Arguments.of("rnbqkbnr/pppppppp/8/2N5/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "N5xe4", new BoardLocation(2, 4), new BoardLocation(4, 3)),
+                 Arguments.of("rnbqkbnr/pppppppp/8/2N5/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "N3xe4", new BoardLocation(2, 2), new BoardLocation(4, 3)),
+                 Arguments.of("rnbqkbnr/pppppppp/8/6N1/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "Ngxe4", new BoardLocation(6, 4), new BoardLocation(4, 3)),
+                 Arguments.of("rnbqkbnr/pppppppp/8/6N1/4p3/2N1K3/PPPP1PPP/R1BQKB1R w kq - 0 1", "Ncxe4", new BoardLocation(2, 2), new BoardLocation(4, 3)),
                  // Castling
-                 Arguments.of("rnbqk2r/pppppppp/8/8/8/8/PPPPPPPP/RNBQK2R w KQkq - 0 1", "O-O", new BoardLocation(4, 0), new BoardLocation(6, 0), false),
-                 Arguments.of("r3kbnr/pppppppp/8/8/8/8/PPPPPPPP/R3KBNR w KQk - 0 1", "O-O-O", new BoardLocation(4, 0), new BoardLocation(2, 0), false),
+                 Arguments.of("rnbqk2r/pppppppp/8/8/8/8/PPPPPPPP/RNBQK2R w KQkq - 0 1", "O-O", new BoardLocation(4, 0), new BoardLocation(6, 0)),
+                 Arguments.of("r3kbnr/pppppppp/8/8/8/8/PPPPPPPP/R3KBNR w KQk - 0 1", "O-O-O", new BoardLocation(4, 0), new BoardLocation(2, 0)),
                  // Bishop moves
-                 Arguments.of("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 1", "Bb5", new BoardLocation(5, 0), new BoardLocation(1, 4), false)
+                 Arguments.of("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 0 1", "Bb5", new BoardLocation(5, 0), new BoardLocation(1, 4))
          );
     }
 }
\ No newline at end of file
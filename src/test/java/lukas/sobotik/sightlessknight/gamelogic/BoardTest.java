@@ -0,0 +1,131 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoardTest {
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForZobristKey")
+    void zobristKey(String fen, String moves, String expectedFen) {
+        Board board = createBoard(fen);
+        long startingKey = board.getZobristKey();
+
+        // Play the moves, given as space-separated from and to squares (e.g. "e2e4 e7e5")
+        List<Move> playedMoves = new ArrayList<>();
+        for (String square : moves.split(" ")) {
+            BoardLocation from = getLocation(square.substring(0, 2));
+            BoardLocation to = getLocation(square.substring(2, 4));
+            Move move = new Move(from, to, board.getPiece(from), board.getPiece(to));
+            board.movePiece(move);
+            playedMoves.add(move);
+        }
+        long key = board.getZobristKey();
+        assertEquals(board.computeZobristKey(), key);
+
+        for (int i = playedMoves.size() - 1; i >= 0; i--) {
+            board.undoMove(playedMoves.get(i));
+        }
+        assertEquals(startingKey, board.getZobristKey());
+
+        assertEquals(createBoard(expectedFen).getZobristKey(), key);
+    }
+
+    private static Stream<Arguments> provideTestCasesForZobristKey() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "g1f3 g8f6 f3g1 f6g8", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4", "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 e7e5 g1f3", "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "g1f3 e7e5 e2e4", "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 d7d5 e4d5 d8d5", "rnb1kbnr/ppp1pppp/8/3q4/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3"),
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1e2 e8e7 e2e1 e7e8", "r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1"),
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "a1a8", "R3k2r/8/8/8/8/8/8/4K2R b Kk - 0 1"),
+                Arguments.of("4k3/8/8/8/5p2/8/4P3/4K3 w - - 0 1", "e2e4", "4k3/8/8/8/4Pp2/8/8/4K3 b - e3 0 1"),
+                Arguments.of("4k3/8/8/8/5p2/8/4P3/4K3 w - - 0 1", "e2e4 f4e3", "4k3/8/8/8/8/4p3/8/4K3 w - - 0 2"),
+                Arguments.of("4k3/8/8/8/8/5p2/4P3/4K3 w - - 0 1", "e2e4", "4k3/8/8/8/4P3/5p2/8/4K3 b - - 0 1")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForCopy")
+    void copy(String fen, String moves, int repetitions) {
+        Board board = createBoard(fen);
+        List<Move> playedMoves = playMoves(board, moves);
+        long key = board.getZobristKey();
+
+        // The copy keeps the moves of the original, more moves than the copied entries make its stack grow
+        Board copy = new Board(board);
+        for (int i = 0; i < repetitions; i++) {
+            playedMoves.addAll(playMoves(copy, "g1f3 g8f6 f3g1 f6g8"));
+        }
+        assertEquals(key, copy.getZobristKey());
+
+        for (int i = playedMoves.size() - 1; i >= 0; i--) {
+            copy.undoMove(playedMoves.get(i));
+        }
+        assertEquals(createBoard(fen).getZobristKey(), copy.getZobristKey());
+        assertEquals(key, board.getZobristKey());
+    }
+
+    private static Stream<Arguments> provideTestCasesForCopy() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 e7e5", 1),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 e7e5", 20),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 d7d5 e4d5 d8d5 b1c3 d5a5", 300)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForUndoOtherMove")
+    void undoOtherMove(String fen, String moves, String undoneMove) {
+        Board board = createBoard(fen);
+        playMoves(board, moves);
+        long key = board.getZobristKey();
+
+        // A move that isn't the last one played must not undo the last move instead
+        BoardLocation from = getLocation(undoneMove.substring(0, 2));
+        BoardLocation to = getLocation(undoneMove.substring(2, 4));
+        assertThrows(IllegalArgumentException.class, () -> board.undoMove(new Move(from, to)));
+        assertThrows(IllegalArgumentException.class, () -> board.undoMove(PackedMove.encode(board.getArrayIndexFromLocation(from), board.getArrayIndexFromLocation(to))));
+        assertEquals(key, board.getZobristKey());
+    }
+
+    private static Stream<Arguments> provideTestCasesForUndoOtherMove() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4 e7e5", "e2e4"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4", "e2e3"),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "g1f3", "f3g1")
+        );
+    }
+
+    private static List<Move> playMoves(Board board, String moves) {
+        List<Move> playedMoves = new ArrayList<>();
+        for (String square : moves.split(" ")) {
+            BoardLocation from = getLocation(square.substring(0, 2));
+            BoardLocation to = getLocation(square.substring(2, 4));
+            Move move = new Move(from, to, board.getPiece(from), board.getPiece(to));
+            board.movePiece(move);
+            playedMoves.add(move);
+        }
+        return playedMoves;
+    }
+
+    private static Board createBoard(String fen) {
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        return new Board(8, pieces, fenUtils);
+    }
+
+    private static BoardLocation getLocation(String algebraicLocation) {
+        return BoardLocation.of(algebraicLocation.charAt(0) - 'a', algebraicLocation.charAt(1) - '1');
+    }
+}
@@ -0,0 +1,64 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PositionAnalysisCacheTest {
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForPositionAnalysis")
+    void positionAnalysis(String fen, String move, CheckState expectedCheckState) {
+        Board board = createBoard(fen);
+        PositionAnalysisCache cache = new PositionAnalysisCache();
+
+        int[] legalMoves = cache.getLegalMoves(board.sideToMove, board);
+        assertEquals(Rules.getAllValidMovesForTeam(board.sideToMove, board, true).size(), legalMoves.length);
+        assertArrayEquals(legalMoves, cache.getLegalMoves(board.sideToMove, board));
+
+        // Changing the returned moves doesn't change the cached ones
+        int[] changedMoves = cache.getLegalMoves(board.sideToMove, board);
+        if (changedMoves.length > 0) changedMoves[0] = 0;
+        assertArrayEquals(legalMoves, cache.getLegalMoves(board.sideToMove, board));
+        assertEquals(Rules.getCheckState(board.sideToMove, board), cache.getCheckState(board.sideToMove, board));
+
+        // After the move the cached values of the previous position must not be returned
+        BoardLocation from = getLocation(move.substring(0, 2));
+        BoardLocation to = getLocation(move.substring(2, 4));
+        Move playedMove = new Move(from, to, board.getPiece(from), board.getPiece(to));
+        board.movePiece(playedMove);
+        assertEquals(Rules.getAllValidMovesForTeam(board.sideToMove, board, true).size(), cache.getLegalMoves(board.sideToMove, board).length);
+        assertEquals(expectedCheckState, cache.getCheckState(board.sideToMove, board));
+        assertEquals(expectedCheckState == CheckState.CHECKMATE || expectedCheckState == CheckState.STALEMATE, cache.isGameOver(board.sideToMove, board));
+
+        // Undoing the move returns to the cached position
+        board.undoMove(playedMove);
+        assertArrayEquals(legalMoves, cache.getLegalMoves(board.sideToMove, board));
+    }
+
+    private static Stream<Arguments> provideTestCasesForPositionAnalysis() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4", CheckState.NONE),
+                Arguments.of("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2", "d8h4", CheckState.CHECKMATE),
+                Arguments.of("rnbqkbnr/ppppp1pp/8/5p2/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2", "d1h5", CheckState.CHECK),
+                Arguments.of("7k/8/6K1/5Q2/8/8/8/8 w - - 0 1", "f5f7", CheckState.STALEMATE)
+        );
+    }
+
+    private static Board createBoard(String fen) {
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        return new Board(8, pieces, fenUtils);
+    }
+
+    private static BoardLocation getLocation(String algebraicLocation) {
+        return BoardLocation.of(algebraicLocation.charAt(0) - 'a', algebraicLocation.charAt(1) - '1');
+    }
+}
@@ -0,0 +1,76 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.PieceType;
+import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PositionTest {
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForMakeMove")
+    void makeMove(String fen) {
+        Board board = createBoard(fen);
+        Position position = new Position(board);
+        assertSamePosition(board, position);
+
+        // Every legal move made on a copy has to give the same position as the move played on the board
+        MoveList moveList = new MoveList();
+        Rules.getAllLegalMoves(board.sideToMove, board, moveList);
+        for (int i = 0; i < moveList.size(); i++) {
+            int packedMove = moveList.get(i);
+            Position copy = position.copy();
+            copy.makeMove(packedMove);
+
+            board.movePiece(packedMove);
+            if (PackedMove.isPromotion(packedMove)) {
+                board.promotePawn(board.getPointFromArrayIndex(PackedMove.getTo(packedMove)), PackedMove.getPromotionPiece(packedMove));
+            }
+            assertSamePosition(board, copy);
+            board.undoMove(packedMove);
+        }
+
+        // The original position is untouched by the moves made on the copies
+        assertSamePosition(board, position);
+    }
+
+    private static Stream<Arguments> provideTestCasesForMakeMove() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b KQkq - 0 1"),
+                Arguments.of("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"),
+                Arguments.of("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1"),
+                Arguments.of("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"),
+                Arguments.of("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8")
+        );
+    }
+
+    private static void assertSamePosition(Board board, Position position) {
+        for (Team team : Team.values()) {
+            for (PieceType type : PieceType.values()) {
+                assertEquals(board.bitboard.getBitboard(team, type), position.getBitboard(team, type));
+            }
+            assertEquals(board.bitboard.getTeamBitboard(team), position.getTeamBitboard(team));
+        }
+        assertArrayEquals(board.pieces, position.getPieces());
+        assertEquals(board.sideToMove, position.getSideToMove());
+        assertEquals(board.getCastlingRights(), position.getCastlingRights());
+        assertEquals(board.getEnPassantSquare(), position.getEnPassantSquare());
+        assertEquals(board.getHalfmoveClock(), position.getHalfmoveClock());
+        assertEquals(board.getZobristKey(), position.getZobristKey());
+    }
+
+    private static Board createBoard(String fen) {
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        return new Board(8, pieces, fenUtils);
+    }
+}
@@ -1,13 +1,20 @@
 package lukas.sobotik.sightlessknight.gamelogic;
 
+import lukas.sobotik.sightlessknight.gamelogic.entity.CheckState;
 import lukas.sobotik.sightlessknight.gamelogic.entity.Team;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RulesTest {
 
@@ -38,4 +45,173 @@ class RulesTest {
                 Arguments.of("3r1rk1/4qpp1/4p2p/p7/PpBnn1b1/1P3N2/5PPP/R1NQR1K1 w - - 0 21", new BoardLocation(1, 1), Team.WHITE, false)
         );
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForGetAttackersTo")
+    void getAttackersTo(String fen, BoardLocation square, Team attackingTeam, String expectedAttackers) {
+        // Create a board from the FEN string
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(8, pieces, fenUtils);
+
+        long expected = 0L;
+        for (String attacker : expectedAttackers.split(" ")) {
+            if (attacker.isEmpty()) continue;
+            expected |= 1L << ((attacker.charAt(0) - 'a') + (attacker.charAt(1) - '1') * 8);
+        }
+
+        long result = Rules.getAttackersTo(board.getArrayIndexFromLocation(square), attackingTeam, board.bitboard.getOccupied(), board);
+        assertEquals(expected, result);
+    }
+
+    private static Stream<Arguments> provideTestCasesForGetAttackersTo() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", new BoardLocation(4, 4), Team.WHITE, ""),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", new BoardLocation(5, 2), Team.WHITE, "e2 g2 g1"),
+                Arguments.of("3r1rk1/4qpp1/4p2p/p7/PpBnn1b1/1P3N2/5PPP/R1NQR1K1 w - - 0 21", new BoardLocation(3, 3), Team.WHITE, "d1 f3"),
+                Arguments.of("3r1rk1/4qpp1/4p2p/p7/PpBnn1b1/1P3N2/5PPP/R1NQR1K1 w - - 0 21", new BoardLocation(3, 3), Team.BLACK, "d8"),
+                Arguments.of("3r1rk1/4qpp1/4p2p/p7/PpBnn1b1/1P3N2/5PPP/R1NQR1K1 w - - 0 21", new BoardLocation(5, 5), Team.BLACK, "e4 e7 g7"),
+                Arguments.of("3r1rk1/4qpp1/4p2p/p7/PpBnn1b1/1P3N2/5PPP/R1NQR1K1 w - - 0 21", new BoardLocation(2, 2), Team.BLACK, "b4 e4"),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", new BoardLocation(2, 2), Team.WHITE, "b2 d2 f3"),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", new BoardLocation(3, 4), Team.BLACK, "b6 e6 f6")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForGetCheckState")
+    void getCheckState(String fen, Team team, CheckState expectedCheckState) {
+        // Create a board from the FEN string
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(8, pieces, fenUtils);
+
+        assertEquals(expectedCheckState, Rules.getCheckState(team, board));
+        assertEquals(expectedCheckState == CheckState.CHECKMATE, Rules.isCheckmate(team, board));
+        assertEquals(expectedCheckState == CheckState.STALEMATE, Rules.isStalemate(team, board));
+    }
+
+    private static Stream<Arguments> provideTestCasesForGetCheckState() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", Team.WHITE, CheckState.NONE),
+                Arguments.of("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", Team.WHITE, CheckState.CHECKMATE),
+                Arguments.of("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", Team.BLACK, CheckState.NONE),
+                Arguments.of("rnbqkbnr/ppppp1pp/8/5p1Q/4P3/8/PPPP1PPP/RNB1KBNR b KQkq - 1 2", Team.BLACK, CheckState.CHECK),
+                Arguments.of("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", Team.BLACK, CheckState.STALEMATE),
+                Arguments.of("7k/8/6K1/8/8/8/8/8 b - - 0 1", Team.BLACK, CheckState.NONE),
+                Arguments.of("4k3/8/8/8/8/3n4/8/R1B1K3 w - - 0 1", Team.WHITE, CheckState.CHECK),
+                // Double check, only the king can move
+                Arguments.of("4k3/8/8/8/8/3n4/5q2/R2BK3 w - - 0 1", Team.WHITE, CheckState.CHECKMATE),
+                Arguments.of("4k3/8/8/8/8/3n4/5q2/R1B1K3 w - - 0 1", Team.WHITE, CheckState.CHECK),
+                // Training boards without kings never end
+                Arguments.of("8/8/8/8/3N4/8/8/8 w - - 0 1", Team.WHITE, CheckState.NONE),
+                Arguments.of("8/8/8/8/3N4/8/8/8 w - - 0 1", Team.BLACK, CheckState.NONE)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForGetEvasionMoves")
+    void getEvasionMoves(String fen, String expectedMoves) {
+        // Create a board from the FEN string
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(8, pieces, fenUtils);
+
+        MoveList moveList = new MoveList();
+        Rules.getAllLegalMoves(board.sideToMove, board, moveList);
+        List<String> moves = new ArrayList<>();
+        for (int i = 0; i < moveList.size(); i++) {
+            Move move = PackedMove.toMove(moveList.get(i), board);
+            String promotionPiece = move.getPromotionPiece() == null ? "" : String.valueOf(fenUtils.getSymbolFromPieceType(move.getPromotionPiece(), Team.BLACK));
+            moves.add(move.getFrom().getAlgebraicNotationLocation() + move.getTo().getAlgebraicNotationLocation() + promotionPiece);
+        }
+        Collections.sort(moves);
+        assertEquals(expectedMoves, String.join(" ", moves));
+    }
+
+    private static Stream<Arguments> provideTestCasesForGetEvasionMoves() {
+        return Stream.of(
+                // Blocking with a piece, a pawn and a pawn moving two squares
+                Arguments.of("4k3/8/8/q7/8/8/1PP4R/4K3 w - - 0 1", "b2b4 c2c3 e1d1 e1e2 e1f1 e1f2 h2d2"),
+                // Knight checks can't be blocked
+                Arguments.of("4k3/8/8/8/8/3n4/8/R1B1K3 w - - 0 1", "e1d1 e1d2 e1e2 e1f1"),
+                // Double check, only the king can move
+                Arguments.of("4k3/8/8/8/8/3n4/5q2/R1B1K3 w - - 0 1", "e1d1"),
+                // Capturing and blocking by promoting
+                Arguments.of("2r1k3/1P6/8/8/8/8/8/2K5 w - - 0 1", "b7c8b b7c8n b7c8q b7c8r c1b1 c1b2 c1d1 c1d2"),
+                Arguments.of("r6K/2P5/8/8/8/8/8/k7 w - - 0 1", "c7c8b c7c8n c7c8q c7c8r h8g7 h8h7"),
+                // Capturing the checking pawn en passant
+                Arguments.of("8/8/8/2k5/3Pp3/8/8/4K3 b - d3 0 1", "c5b4 c5b5 c5b6 c5c4 c5c6 c5d4 c5d5 c5d6 e4d3"),
+                // A pinned piece can't block
+                Arguments.of("4r1k1/8/8/8/1b6/8/4N3/4K3 w - - 0 1", "e1d1 e1f1 e1f2")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForIsLegal")
+    void isLegal(String fen, String move, boolean expectedResult) {
+        // Create a board from the FEN string
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        Board board = new Board(8, pieces, fenUtils);
+
+        BoardLocation from = BoardLocation.of(move.charAt(0) - 'a', move.charAt(1) - '1');
+        BoardLocation to = BoardLocation.of(move.charAt(2) - 'a', move.charAt(3) - '1');
+        assertEquals(expectedResult, Rules.isLegal(board, new Move(from, to, board.getPiece(from), board.getPiece(to))));
+
+        // Every move of the generated list has to be legal, and the number of legal from and to pairs has to match it
+        Team team = board.getPiece(from).team;
+        List<Move> validMoves = Rules.getAllValidMovesForTeam(team, board, true);
+        Set<String> validSquares = new HashSet<>();
+        for (Move validMove : validMoves) {
+            assertTrue(Rules.isLegal(board, validMove));
+            validSquares.add(validMove.getFrom().getAlgebraicNotationLocation() + validMove.getTo().getAlgebraicNotationLocation());
+        }
+        int legalSquares = 0;
+        for (int fromIndex = 0; fromIndex < 64; fromIndex++) {
+            Piece piece = board.pieces[fromIndex];
+            if (piece == null || piece.team != team) continue;
+            for (int toIndex = 0; toIndex < 64; toIndex++) {
+                BoardLocation fromLocation = BoardLocation.fromIndex(fromIndex);
+                BoardLocation toLocation = BoardLocation.fromIndex(toIndex);
+                if (Rules.isLegal(board, new Move(fromLocation, toLocation, piece, board.pieces[toIndex]))) legalSquares++;
+            }
+        }
+        assertEquals(validSquares.size(), legalSquares);
+    }
+
+    private static Stream<Arguments> provideTestCasesForIsLegal() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4", true),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e5", false),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "f1c4", false),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "g1f3", true),
+                // Pinned knight
+                Arguments.of("4k3/4r3/8/8/8/8/4N3/4K3 w - - 0 1", "e2c3", false),
+                // Pinned rook moving along the pin
+                Arguments.of("4k3/4r3/8/8/8/8/4R3/4K3 w - - 0 1", "e2e7", true),
+                // Only blocking or capturing the checking piece gets out of check
+                Arguments.of("4k3/8/8/8/8/8/8/r3K2R w K - 0 1", "h1h2", false),
+                Arguments.of("4k3/8/8/8/8/8/8/r3K2R w K - 0 1", "h1a1", false),
+                Arguments.of("4k3/8/8/8/8/8/3R4/r3K3 w - - 0 1", "d2d1", true),
+                Arguments.of("4k3/8/8/8/8/8/8/r3K2R w K - 0 1", "e1f2", true),
+                Arguments.of("4k3/8/8/8/8/8/8/r3K2R w K - 0 1", "e1f1", false),
+                // Castling
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1g1", true),
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "e1c1", true),
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K2R w Qkq - 0 1", "e1g1", false),
+                Arguments.of("r3k2r/8/8/8/8/8/8/R3K1rR w KQkq - 0 1", "e1g1", false),
+                Arguments.of("r3k2r/8/8/8/8/8/5r2/R3K2R w KQkq - 0 1", "e1g1", false),
+                // En passant, also when it would expose the king
+                Arguments.of("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", true),
+                Arguments.of("4k3/8/8/3pP3/8/8/8/4K3 w - - 0 1", "e5d6", false),
+                Arguments.of("8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1", "e5d6", false),
+                // Promotion
+                Arguments.of("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1", "b7b8", true),
+                Arguments.of("8/8/8/8/3N4/8/8/8 w - - 0 1", "d4e6", true)
+        );
+    }
+}
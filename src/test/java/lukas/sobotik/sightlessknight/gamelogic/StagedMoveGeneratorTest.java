@@ -0,0 +1,85 @@
+package lukas.sobotik.sightlessknight.gamelogic;
+
+import lukas.sobotik.sightlessknight.gamelogic.entity.MoveFlag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagedMoveGeneratorTest {
+
+    @ParameterizedTest
+    @MethodSource("provideTestCasesForStagedMoves")
+    void stagedMoves(String fen, String hashMove, boolean isHashMoveLegal) {
+        Board board = createBoard(fen);
+
+        int packedHashMove = hashMove.isEmpty() ? PackedMove.NO_MOVE : PackedMove.encode(getSquare(hashMove.substring(0, 2)), getSquare(hashMove.substring(2, 4)));
+        StagedMoveGenerator generator = new StagedMoveGenerator(board.sideToMove, board, packedHashMove);
+        List<Integer> stagedMoves = new ArrayList<>();
+        for (int packedMove = generator.next(); packedMove != PackedMove.NO_MOVE; packedMove = generator.next()) {
+            stagedMoves.add(packedMove);
+        }
+
+        // The same moves as the full generator, each returned once
+        MoveList moveList = new MoveList();
+        Rules.getAllLegalMoves(board.sideToMove, board, moveList);
+        List<Integer> allMoves = new ArrayList<>();
+        for (int i = 0; i < moveList.size(); i++) {
+            allMoves.add(moveList.get(i));
+        }
+        assertEquals(allMoves.size(), stagedMoves.size());
+        assertTrue(stagedMoves.containsAll(allMoves));
+
+        // The hash move comes first, then the captures and promotions, then the quiet moves
+        int first = isHashMoveLegal ? 1 : 0;
+        if (isHashMoveLegal) {
+            assertEquals(packedHashMove, stagedMoves.get(0));
+        } else {
+            assertFalse(stagedMoves.contains(packedHashMove));
+        }
+        boolean isQuietStage = false;
+        for (int i = first; i < stagedMoves.size(); i++) {
+            boolean isCapture = isCaptureOrPromotion(stagedMoves.get(i), board);
+            assertFalse(isQuietStage && isCapture);
+            isQuietStage |= !isCapture;
+        }
+    }
+
+    private static Stream<Arguments> provideTestCasesForStagedMoves() {
+        return Stream.of(
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "", false),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e4", true),
+                Arguments.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "e2e5", false),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "e5f7", true),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "d2h6", true),
+                Arguments.of("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "a8a7", false),
+                Arguments.of("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "f1f2", true),
+                Arguments.of("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "b4f4", true),
+                Arguments.of("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "", false)
+        );
+    }
+
+    private static boolean isCaptureOrPromotion(int packedMove, Board board) {
+        return board.getPiece(PackedMove.getTo(packedMove)) != null
+                || PackedMove.isPromotion(packedMove)
+                || PackedMove.getMoveFlag(packedMove) == MoveFlag.enPassant;
+    }
+
+    private static Board createBoard(String fen) {
+        Piece[] pieces = new Piece[64];
+        FenUtils fenUtils = new FenUtils(pieces);
+        pieces = fenUtils.generatePositionFromFEN(fen);
+        return new Board(8, pieces, fenUtils);
+    }
+
+    private static int getSquare(String algebraicLocation) {
+        return (algebraicLocation.charAt(0) - 'a') + (algebraicLocation.charAt(1) - '1') * 8;
+    }
+}